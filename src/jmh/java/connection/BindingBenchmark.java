@@ -0,0 +1,81 @@
+package connection;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ProtocolVersion;
+import model.Friendship;
+import model.Message;
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Cost of turning a model row into bound values: the same value extraction {@link DataLoader}
+ * binds, serialized through the codecs the driver picks at bind time. Runs without a cluster.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BindingBenchmark {
+
+  private static final int ROWS = 1_024;
+
+  private final CodecRegistry codecRegistry =
+      new CodecRegistry().register(LongIdListCodec.INSTANCE);
+
+  private User[] users;
+  private Friendship[] friendships;
+  private Message[] messages;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    List<User> generatedUsers =
+        DataGenerator.generateUsers(
+            0, ROWS, DataLoader.NUMBER_OF_MOVIES, DataLoader.NUMBER_AUDIO_TRACKS);
+    List<Friendship> generatedFriendships =
+        DataGenerator.generateFriendships(0, ROWS, DataLoader.NUMBER_OF_USERS);
+    List<Message> generatedMessages =
+        DataGenerator.generateMessages(0, ROWS, DataLoader.NUMBER_OF_USERS);
+    users = generatedUsers.toArray(new User[0]);
+    friendships = generatedFriendships.toArray(new Friendship[0]);
+    messages = generatedMessages.toArray(new Message[0]);
+  }
+
+  @Benchmark
+  public void bindUser(Blackhole blackhole) {
+    serialize(DataLoader.userValues(users[nextIndex()]), blackhole);
+  }
+
+  @Benchmark
+  public void bindFriendship(Blackhole blackhole) {
+    serialize(DataLoader.friendshipValues(friendships[nextIndex()]), blackhole);
+  }
+
+  @Benchmark
+  public void bindMessage(Blackhole blackhole) {
+    serialize(DataLoader.messageValues(messages[nextIndex()]), blackhole);
+  }
+
+  private void serialize(Object[] values, Blackhole blackhole) {
+    for (Object value : values) {
+      blackhole.consume(codecRegistry.codecFor(value).serialize(value, ProtocolVersion.V4));
+    }
+  }
+
+  private int nextIndex() {
+    next = (next + 1) & (ROWS - 1);
+    return next;
+  }
+}
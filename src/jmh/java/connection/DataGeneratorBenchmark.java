@@ -0,0 +1,65 @@
+package connection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+
+/** Row generation throughput of {@link DataGenerator}, reported per generated row. */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataGeneratorBenchmark {
+
+  private static final int ROWS = 1_000;
+  private static final int SAMPLE_SIZE = 500;
+
+  private final SplittableRandom random = new SplittableRandom(DataGenerator.DEFAULT_SEED);
+  private final LongDistribution uniformUsers =
+      LongDistribution.uniform(1, DataLoader.NUMBER_OF_USERS);
+  private final LongDistribution zipfUsers =
+      LongDistribution.zipf(1, DataLoader.NUMBER_OF_USERS, 1.0);
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void generateUsers(Blackhole blackhole) {
+    DataGenerator.generateUsers(
+        0,
+        ROWS,
+        DataLoader.NUMBER_OF_MOVIES,
+        DataLoader.NUMBER_AUDIO_TRACKS,
+        blackhole::consume);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void generateFriendships(Blackhole blackhole) {
+    DataGenerator.generateFriendships(0, ROWS, DataLoader.NUMBER_OF_USERS, blackhole::consume);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void generateMessages(Blackhole blackhole) {
+    DataGenerator.generateMessages(0, ROWS, DataLoader.NUMBER_OF_USERS, blackhole::consume);
+  }
+
+  @Benchmark
+  public Object sampleUniform() {
+    return DistinctSampler.sample(random, SAMPLE_SIZE, uniformUsers);
+  }
+
+  @Benchmark
+  public Object sampleZipf() {
+    return DistinctSampler.sample(random, SAMPLE_SIZE, zipfUsers);
+  }
+}
@@ -0,0 +1,76 @@
+package connection;
+
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TypeCodec;
+import model.LongIdList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Holding a user's ids as a {@link LongIdList} against the boxed {@code List<Long>} it replaced,
+ * both when building the list and when decoding it from a {@code list<bigint>} column. Compare
+ * the gc profiler's {@code gc.alloc.rate.norm}, the bytes allocated per list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LongIdListBenchmark {
+
+  private static final ProtocolVersion VERSION = ProtocolVersion.V4;
+  private static final TypeCodec<List<Long>> BOXED_CODEC = TypeCodec.list(TypeCodec.bigint());
+
+  /** 500 and 1000 are the most movies and audio tracks a generated user has. */
+  @Param({"500", "1000"})
+  private int size;
+
+  private long[] ids;
+  private ByteBuffer serialized;
+
+  @Setup
+  public void setUp() {
+    ids =
+        new SplittableRandom(DataGenerator.DEFAULT_SEED)
+            .longs(size, 1, DataLoader.NUMBER_OF_MOVIES)
+            .toArray();
+    serialized = LongIdListCodec.INSTANCE.serialize(LongIdList.wrap(ids), VERSION);
+  }
+
+  @Benchmark
+  public LongIdList buildLongIdList() {
+    return LongIdList.wrap(ids.clone());
+  }
+
+  @Benchmark
+  public List<Long> buildBoxedList() {
+    List<Long> boxed = new ArrayList<>(ids.length);
+    for (long id : ids) {
+      boxed.add(id);
+    }
+    return boxed;
+  }
+
+  @Benchmark
+  public LongIdList decodeLongIdList() {
+    return LongIdListCodec.INSTANCE.deserialize(serialized.duplicate(), VERSION);
+  }
+
+  @Benchmark
+  public List<Long> decodeBoxedList() {
+    return BOXED_CODEC.deserialize(serialized.duplicate(), VERSION);
+  }
+}
@@ -0,0 +1,91 @@
+package logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The aggregation loops of {@link ActivityReport}, fed from in-memory column arrays instead of
+ * driver rows. Reported per input row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportAggregationBenchmark {
+
+  private static final int ROWS = 100_000;
+  private static final int FIRST_DAY = 16_436; // 2015-01-01
+  private static final int DAYS = 5 * 365;
+
+  private int[] messageDays;
+  private int[] friendshipDays;
+  private long[] userIds;
+  private int[] friendCounts;
+  private int[] movieCounts;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    messageDays = new int[ROWS];
+    friendshipDays = new int[ROWS];
+    userIds = new long[ROWS];
+    friendCounts = new int[ROWS];
+    movieCounts = new int[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      messageDays[i] = FIRST_DAY + random.nextInt(DAYS);
+      friendshipDays[i] = FIRST_DAY + random.nextInt(DAYS);
+      userIds[i] = i;
+      friendCounts[i] = random.nextInt(500);
+      movieCounts[i] = random.nextInt(500);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public double[] averageMessagesByDayOfWeek() {
+    DailyCounts counts = new DailyCounts();
+    for (int day : messageDays) {
+      counts.add(day, 1);
+    }
+    return counts.averageByDayOfWeek();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public MonthlyMax maxNewFriendshipsByMonth() {
+    MonthlyMax max = new MonthlyMax();
+    for (int i = 0; i < ROWS; i++) {
+      max.offer(DateBuckets.yearMonth(friendshipDays[i]), friendCounts[i]);
+    }
+    return max;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public List<Map.Entry<Long, Integer>> minWatchedMoviesByUsersWithMoreThan100Friends() {
+    FriendCounts friends = FriendCounts.above(ActivityReport.MIN_MOVIES_FRIENDS_THRESHOLD).get();
+    for (int i = 0; i < ROWS; i++) {
+      friends.add(userIds[i], friendCounts[i]);
+    }
+    WatchedMovies users = WatchedMovies.smallest(ActivityReport.MIN_MOVIES_LIMIT).get();
+    for (int i = 0; i < ROWS; i++) {
+      if (friends.contains(userIds[i])) {
+        users.add(userIds[i], movieCounts[i]);
+      }
+    }
+    return users.smallest();
+  }
+}
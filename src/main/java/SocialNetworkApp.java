@@ -1,16 +1,37 @@
+import connection.CassandraConnection;
 import connection.DataLoader;
 import connection.DatabaseCreator;
 import logic.ActivityReport;
+import logic.CounterReconciler;
+import metrics.Instrumentation;
 
 public class SocialNetworkApp {
 
+  /** Continues an interrupted load from its checkpoint instead of recreating the keyspace. */
+  private static final String RESUME = "--resume";
+
   public static void main(String[] args) {
 
-    DatabaseCreator.createKeyspaceWithTables();
-    DataLoader.executeLoading();
+    Instrumentation.startReporters();
+    try {
+      if (args.length > 0 && RESUME.equals(args[0])) {
+        DatabaseCreator.createMissingKeyspaceAndTables();
+        DataLoader.resumeLoading();
+        new CounterReconciler(CassandraConnection.getSession()).reconcileAll();
+      } else {
+        DatabaseCreator.createKeyspaceWithTables();
+        DataLoader.executeLoading();
+      }
 
-    ActivityReport.showAverageMessagesByDayOfWeek();
-    ActivityReport.showMaxNumberOfNewFriendshipsFromMonthToMonth();
-    ActivityReport.showMinNumberOfWatchedMoviesByUsersWithMoreThan100friends();
+      ActivityReport.showAverageMessagesByDayOfWeek();
+      ActivityReport.showMaxNumberOfNewFriendshipsFromMonthToMonth();
+      ActivityReport.showMinNumberOfWatchedMoviesByUsersWithMoreThan100friends();
+      ActivityReport.showLatestInboxMessages(1, 20);
+      ActivityReport.showFriendsOfFriends(1);
+      ActivityReport.showUserCatalog(1);
+    } finally {
+      Instrumentation.stopReporters();
+      CassandraConnection.closeSession();
+    }
   }
 }
@@ -0,0 +1,242 @@
+package connection;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import metrics.WriterMetrics;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes statements with {@link Session#executeAsync(Statement)}, keeping at most {@code
+ * maxInFlight} requests on the wire. {@link #write(Statement)} blocks while the window is full.
+ * Writers for different tables can additionally share one global budget of in-flight requests,
+ * and a {@link ConcurrencyLimiter} can narrow the window further as latency and overload dictate.
+ * Retries are resent after an exponential, jittered backoff from a scheduler thread, never from
+ * the driver's I/O thread that reported the failure.
+ */
+public class AsyncWriter implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(AsyncWriter.class);
+  private static final int MAX_RETAINED_FAILURES = 1_000;
+  private static final long RETRY_BASE_DELAY_MILLIS = 10;
+  private static final long RETRY_MAX_DELAY_MILLIS = 1_000;
+
+  /** Shared by all writers; a daemon so that writers which are never closed do not keep it up. */
+  private static final ScheduledExecutorService RETRY_SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "async-writer-retry");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final Session session;
+  private final Semaphore permits;
+  private final Semaphore sharedBudget;
+  private final int maxInFlight;
+  private final int maxRetries;
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong retried = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+  private WriterMetrics metrics;
+  private ConcurrencyLimiter limiter;
+
+  public AsyncWriter(Session session, int maxInFlight, int maxRetries) {
+    this(session, maxInFlight, maxRetries, null);
+  }
+
+  public AsyncWriter(Session session, int maxInFlight, int maxRetries, Semaphore sharedBudget) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    this.session = session;
+    this.maxInFlight = maxInFlight;
+    this.maxRetries = maxRetries;
+    this.permits = new Semaphore(maxInFlight);
+    this.sharedBudget = sharedBudget;
+  }
+
+  /** Reports in-flight requests, retries and outcomes to {@code metrics}. Call before writing. */
+  public AsyncWriter withMetrics(WriterMetrics metrics) {
+    this.metrics = metrics;
+    exposeLimit();
+    return this;
+  }
+
+  /** Keeps the in-flight window within the limit {@code limiter} adapts. Call before writing. */
+  public AsyncWriter withLimiter(ConcurrencyLimiter limiter) {
+    this.limiter = limiter;
+    exposeLimit();
+    return this;
+  }
+
+  public void write(Statement statement) {
+    if (limiter != null) {
+      limiter.acquire();
+    }
+    permits.acquireUninterruptibly();
+    if (sharedBudget != null) {
+      sharedBudget.acquireUninterruptibly();
+    }
+    if (metrics != null) {
+      metrics.onSubmit();
+    }
+    submit(statement, 0);
+  }
+
+  /** Blocks until every statement handed to {@link #write(Statement)} has completed. */
+  public void awaitCompletion() {
+    permits.acquireUninterruptibly(maxInFlight);
+    permits.release(maxInFlight);
+  }
+
+  public long getWritten() {
+    return written.get();
+  }
+
+  public long getRetried() {
+    return retried.get();
+  }
+
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /** Failed statements, capped at the first {@value #MAX_RETAINED_FAILURES}. */
+  public List<Failure> getFailures() {
+    return new ArrayList<>(failures);
+  }
+
+  @Override
+  public void close() {
+    awaitCompletion();
+    if (failed.get() > 0) {
+      LOGGER.error(
+          String.format(
+              "%s statements failed after retries (%s written, %s retried)",
+              failed.get(), written.get(), retried.get()));
+      failures.forEach(failure -> LOGGER.error(failure.getStatement(), failure.getCause()));
+    }
+  }
+
+  private void submit(Statement statement, int attempt) {
+    long start = System.nanoTime();
+    ResultSetFuture future;
+    try {
+      future = session.executeAsync(statement);
+    } catch (RuntimeException e) {
+      onFailure(statement, attempt, e);
+      return;
+    }
+
+    Futures.addCallback(
+        future,
+        new FutureCallback<ResultSet>() {
+          @Override
+          public void onSuccess(ResultSet result) {
+            if (limiter != null) {
+              limiter.onSample(System.nanoTime() - start, null);
+            }
+            written.incrementAndGet();
+            if (metrics != null) {
+              metrics.onWritten();
+            }
+            release();
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            if (limiter != null) {
+              limiter.onSample(System.nanoTime() - start, t);
+            }
+            AsyncWriter.this.onFailure(statement, attempt, t);
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private void onFailure(Statement statement, int attempt, Throwable t) {
+    if (attempt < maxRetries && isRetryable(statement, t)) {
+      retried.incrementAndGet();
+      if (metrics != null) {
+        metrics.onRetry();
+      }
+      RETRY_SCHEDULER.schedule(
+          () -> submit(statement, attempt + 1), retryDelayMillis(attempt), TimeUnit.MILLISECONDS);
+      return;
+    }
+
+    if (failed.incrementAndGet() <= MAX_RETAINED_FAILURES) {
+      failures.add(new Failure(statement, t));
+    }
+    if (metrics != null) {
+      metrics.onFailed();
+    }
+    release();
+  }
+
+  private void release() {
+    if (sharedBudget != null) {
+      sharedBudget.release();
+    }
+    permits.release();
+    if (limiter != null) {
+      limiter.release();
+    }
+  }
+
+  private void exposeLimit() {
+    if (metrics != null && limiter != null) {
+      metrics.trackConcurrencyLimit(limiter::getLimit);
+    }
+  }
+
+  /** Doubles per attempt up to a cap, then picks uniformly from the upper half of that delay. */
+  static long retryDelayMillis(int attempt) {
+    long delay =
+        Math.min(RETRY_MAX_DELAY_MILLIS, RETRY_BASE_DELAY_MILLIS << Math.min(attempt, 20));
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  private static boolean isRetryable(Statement statement, Throwable t) {
+    return Boolean.TRUE.equals(statement.isIdempotent())
+        && !(t instanceof QueryValidationException);
+  }
+
+  public static class Failure {
+
+    private final Statement statement;
+    private final Throwable cause;
+
+    Failure(Statement statement, Throwable cause) {
+      this.statement = statement;
+      this.cause = cause;
+    }
+
+    public Statement getStatement() {
+      return statement;
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+  }
+}
@@ -1,7 +1,17 @@
 package connection;
 
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.Metrics;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.ProtocolOptions;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import metrics.Instrumentation;
 import org.apache.log4j.Logger;
 
 import java.io.FileInputStream;
@@ -9,33 +19,138 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
+/**
+ * Owns the one {@link Cluster} and {@link Session} of the process. Both are created on first use
+ * and shared by every caller; they are closed by {@link #closeSession()} or at JVM shutdown.
+ */
 public class CassandraConnection {
 
   private static final Logger LOGGER = Logger.getLogger(CassandraConnection.class);
+  private static final String PROPERTIES_FILE = "src/main/resources/cassandra.properties";
+
   private static Cluster cluster;
   private static Session session;
+  private static boolean shutdownHookRegistered;
 
   private CassandraConnection() {
   }
 
-  public static Session getSession() {
-    Properties propCassandra = new Properties();
-    try (InputStream input = new FileInputStream("src/main/resources/cassandra.properties")) {
-      propCassandra.load(input);
-    } catch (IOException e) {
-      LOGGER.error(e);
+  public static synchronized Session getSession() {
+    if (session == null || session.isClosed()) {
+      connect();
+    }
+    return session;
+  }
+
+  public static synchronized void closeSession() {
+    if (cluster == null) {
+      return;
     }
+    logConnectionMetrics();
+    session.close();
+    cluster.close();
+    session = null;
+    cluster = null;
+    LOGGER.info("Cassandra cluster connection closed");
+  }
+
+  private static void connect() {
+    Properties propCassandra = loadProperties();
 
     String node = propCassandra.getProperty("cassandra.node");
     int port = Integer.parseInt(propCassandra.getProperty("cassandra.port"));
 
-    cluster = Cluster.builder().addContactPoint(node).withPort(port).build();
-    session = cluster.connect();
-    return session;
+    PoolingOptions poolingOptions =
+        new PoolingOptions()
+            .setConnectionsPerHost(
+                HostDistance.LOCAL,
+                intProperty(propCassandra, "cassandra.pool.coreConnectionsPerHost", 1),
+                intProperty(propCassandra, "cassandra.pool.maxConnectionsPerHost", 1))
+            .setMaxRequestsPerConnection(
+                HostDistance.LOCAL,
+                intProperty(propCassandra, "cassandra.pool.maxRequestsPerConnection", 1024));
+
+    SocketOptions socketOptions =
+        new SocketOptions()
+            .setConnectTimeoutMillis(
+                intProperty(
+                    propCassandra,
+                    "cassandra.socket.connectTimeoutMillis",
+                    SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS))
+            .setReadTimeoutMillis(
+                intProperty(
+                    propCassandra,
+                    "cassandra.socket.readTimeoutMillis",
+                    SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS))
+            .setTcpNoDelay(true)
+            .setKeepAlive(true);
+
+    ProtocolOptions.Compression compression =
+        ProtocolOptions.Compression.valueOf(
+            propCassandra.getProperty("cassandra.compression", "NONE").trim().toUpperCase());
+
+    Cluster newCluster =
+        Cluster.builder()
+            .addContactPoint(node)
+            .withPort(port)
+            .withPoolingOptions(poolingOptions)
+            .withSocketOptions(socketOptions)
+            .withLoadBalancingPolicy(
+                loadBalancingPolicy(propCassandra.getProperty("cassandra.localDataCenter", "")))
+            .withCompression(compression)
+            .withCodecRegistry(new CodecRegistry().register(LongIdListCodec.INSTANCE))
+            .build();
+    try {
+      Instrumentation.register(newCluster);
+      session = newCluster.connect();
+    } catch (RuntimeException e) {
+      newCluster.close();
+      throw e;
+    }
+    cluster = newCluster;
+    LOGGER.info(
+        String.format("Connected to %s:%s (compression %s)", node, port, compression));
+
+    if (!shutdownHookRegistered) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(CassandraConnection::closeSession, "cassandra-shutdown"));
+      shutdownHookRegistered = true;
+    }
   }
 
-  public static void closeSession() {
-    session.close();
-    cluster.close();
+  private static LoadBalancingPolicy loadBalancingPolicy(String localDataCenter) {
+    DCAwareRoundRobinPolicy.Builder builder = DCAwareRoundRobinPolicy.builder();
+    if (!localDataCenter.trim().isEmpty()) {
+      builder.withLocalDc(localDataCenter.trim());
+    }
+    return new TokenAwarePolicy(builder.build());
+  }
+
+  private static void logConnectionMetrics() {
+    Metrics metrics = cluster.getMetrics();
+    if (metrics == null) {
+      return;
+    }
+    LOGGER.info(
+        String.format(
+            "Session served %s requests over %s open connections to %s hosts",
+            metrics.getRequestsTimer().getCount(),
+            metrics.getOpenConnections().getValue(),
+            metrics.getConnectedToHosts().getValue()));
+  }
+
+  private static Properties loadProperties() {
+    Properties propCassandra = new Properties();
+    try (InputStream input = new FileInputStream(PROPERTIES_FILE)) {
+      propCassandra.load(input);
+    } catch (IOException e) {
+      LOGGER.error(e);
+    }
+    return propCassandra;
+  }
+
+  private static int intProperty(Properties properties, String key, int defaultValue) {
+    String value = properties.getProperty(key);
+    return value == null ? defaultValue : Integer.parseInt(value.trim());
   }
 }
@@ -0,0 +1,160 @@
+package connection;
+
+import com.datastax.driver.core.exceptions.BusyPoolException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on requests in flight. Request latencies are collected in windows of roughly one
+ * round trip ({@code limit} samples); at the end of each window the limit is
+ *
+ * <ul>
+ *   <li>multiplied by {@value #BACKOFF_RATIO} if any request timed out or the cluster reported
+ *       overload,
+ *   <li>scaled by {@code targetP99 / p99} (but by no less than {@value #BACKOFF_RATIO}) if the
+ *       window's p99 latency was over the target,
+ *   <li>raised by one otherwise, provided the window actually used at least half of the limit.
+ * </ul>
+ *
+ * <p>This is AIMD with a latency gradient on the decrease side: it keeps growing while the cluster
+ * absorbs the load within the latency target and backs off as soon as queues start to build.
+ */
+public class ConcurrencyLimiter {
+
+  static final double BACKOFF_RATIO = 0.7;
+
+  private static final int MIN_WINDOW_SAMPLES = 32;
+  private static final int MAX_WINDOW_SAMPLES = 4_096;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long targetP99Nanos;
+
+  private double limit;
+  private int inFlight;
+  private int maxInFlightInWindow;
+  private boolean overloadInWindow;
+  private final long[] samples = new long[MAX_WINDOW_SAMPLES];
+  private int sampleCount;
+  private long windowsClosed;
+
+  public ConcurrencyLimiter(
+      int minLimit, int initialLimit, int maxLimit, long targetP99, TimeUnit unit) {
+    if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Limits must satisfy 1 <= %s <= %s <= %s", minLimit, initialLimit, maxLimit));
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.targetP99Nanos = unit.toNanos(targetP99);
+  }
+
+  /** Blocks until fewer than {@link #getLimit()} requests are in flight, then takes a slot. */
+  public synchronized void acquire() {
+    boolean interrupted = false;
+    while (inFlight >= (int) limit) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    inFlight++;
+    maxInFlightInWindow = Math.max(maxInFlightInWindow, inFlight);
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public synchronized void release() {
+    inFlight--;
+    notifyAll();
+  }
+
+  /**
+   * Records the outcome of one attempt; {@code failure} is {@code null} if it succeeded. Called on
+   * driver I/O threads, so a full window is only copied under the lock and sorted outside it. The
+   * new limit is dropped if a later window closed in the meantime, since it was computed from a
+   * limit that window's own decision supersedes.
+   */
+  public void onSample(long latencyNanos, Throwable failure) {
+    long[] latencies;
+    boolean overload;
+    int maxUsed;
+    double current;
+    long window;
+    synchronized (this) {
+      if (failure != null && isOverload(failure)) {
+        overloadInWindow = true;
+      }
+      samples[sampleCount++] = latencyNanos;
+      if (sampleCount < Math.max(MIN_WINDOW_SAMPLES, (int) limit)
+          && sampleCount < samples.length) {
+        return;
+      }
+      latencies = overloadInWindow ? null : Arrays.copyOf(samples, sampleCount);
+      overload = overloadInWindow;
+      maxUsed = maxInFlightInWindow;
+      current = limit;
+      sampleCount = 0;
+      overloadInWindow = false;
+      maxInFlightInWindow = inFlight;
+      window = ++windowsClosed;
+    }
+
+    long p99 = 0;
+    if (latencies != null) {
+      Arrays.sort(latencies);
+      p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+    }
+    double next = nextLimit(current, overload, p99, maxUsed);
+    synchronized (this) {
+      if (window != windowsClosed) {
+        return;
+      }
+      limit = next;
+      if (next > current) {
+        notifyAll();
+      }
+    }
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * The limit after a window with the given outcome: {@code p99} is ignored if the window saw an
+   * overload, and {@code maxUsed} is the most requests that were in flight at once.
+   */
+  double nextLimit(double current, boolean overload, long p99, int maxUsed) {
+    double next = current;
+    if (overload) {
+      next *= BACKOFF_RATIO;
+    } else if (p99 > targetP99Nanos) {
+      next *= Math.max(BACKOFF_RATIO, (double) targetP99Nanos / p99);
+    } else if (maxUsed * 2 >= (int) current) {
+      next += 1;
+    }
+    return Math.max(minLimit, Math.min(maxLimit, next));
+  }
+
+  /** Errors that mean the cluster or the connection pool is taking more than it can serve. */
+  static boolean isOverload(Throwable t) {
+    if (t instanceof NoHostAvailableException) {
+      return ((NoHostAvailableException) t)
+          .getErrors().values().stream().anyMatch(ConcurrencyLimiter::isOverload);
+    }
+    return t instanceof WriteTimeoutException
+        || t instanceof OperationTimedOutException
+        || t instanceof OverloadedException
+        || t instanceof BusyPoolException;
+  }
+}
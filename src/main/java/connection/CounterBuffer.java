@@ -0,0 +1,41 @@
+package connection;
+
+import com.datastax.driver.core.PreparedStatement;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sums counter increments per key on the client, so many increments of a key cost one counter
+ * update. The update statement binds the delta first and the key second, e.g. {@code UPDATE t SET
+ * c = c + ? WHERE k = ?}. Pending keys are written once there are more than {@code maxPendingKeys}
+ * of them, and on {@link #flush}.
+ */
+public class CounterBuffer<K> {
+
+  private final PreparedStatement update;
+  private final int maxPendingKeys;
+  private final Map<K, Long> pending = new ConcurrentHashMap<>();
+
+  public CounterBuffer(PreparedStatement update, int maxPendingKeys) {
+    this.update = update;
+    this.maxPendingKeys = maxPendingKeys;
+  }
+
+  public void add(K key, long delta, AsyncWriter writer) {
+    pending.merge(key, delta, Long::sum);
+    if (pending.size() > maxPendingKeys) {
+      flush(writer);
+    }
+  }
+
+  /** Writes every pending key. Concurrent {@link #add} calls are never lost, only deferred. */
+  public void flush(AsyncWriter writer) {
+    for (K key : pending.keySet()) {
+      Long delta = pending.remove(key);
+      if (delta != null && delta != 0) {
+        writer.write(update.bind(delta, key));
+      }
+    }
+  }
+}
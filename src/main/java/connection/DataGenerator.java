@@ -4,155 +4,313 @@ import model.*;
 import org.apache.log4j.Logger;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Seeded synthetic data. Every row draws from its own {@link SplittableRandom}, split off the
+ * root seed by table and id, so any range of ids yields the same rows no matter how the id space
+ * is chunked or how many threads generate it.
+ */
 public class DataGenerator {
 
   public static final String SUCCESS = "List generated successfully!";
+  public static final long DEFAULT_SEED = 20_200_101L;
+
   private static final Logger LOGGER = Logger.getLogger(DataGenerator.class);
-  private static final Random rm = new Random();
+
+  private static final char[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+  private static final int MIN_STRING_LENGTH = 3;
+  private static final int MAX_STRING_LENGTH = 20;
+
+  /** Dates are generated relative to this instant (2020-01-01T00:00:00Z), not the clock. */
+  private static final long REFERENCE_MILLIS = 1_577_836_800_000L;
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private static final long USERS_STREAM = 1;
+  private static final long MESSAGES_STREAM = 2;
+  private static final long MOVIES_STREAM = 3;
+  private static final long AUDIO_TRACKS_STREAM = 4;
+  private static final long FRIENDSHIPS_STREAM = 5;
+
+  private static volatile long seed = DEFAULT_SEED;
+  private static volatile SkewedIds popularIds = new SkewedIds(0);
+  private static volatile SkewedIds messageUsers = new SkewedIds(0);
+  private static volatile LongDistribution friendCounts = LongDistribution.uniform(0, 500);
 
   private DataGenerator() {}
 
-  public static List<User> generateUsers(
-      long startUsersId, long endUsersId, long maxMovieId, long maxAudioTrackId) {
+  public static void setSeed(long newSeed) {
+    seed = newSeed;
+  }
 
-    LOGGER.info("Generating list of users...");
-    List<User> users = new ArrayList<>();
+  public static long getSeed() {
+    return seed;
+  }
 
-    for (long i = startUsersId; i < endUsersId; i++) {
+  /**
+   * Skews which movies, audio tracks and friends get picked: ids follow a Zipf law with this
+   * exponent, so low ids become hot partitions. {@code 0} keeps the choice uniform.
+   */
+  public static void setPopularityExponent(double exponent) {
+    if (exponent < 0) {
+      throw new IllegalArgumentException("Popularity exponent must not be negative: " + exponent);
+    }
+    popularIds = new SkewedIds(exponent);
+  }
 
-      User user = new User();
-      user.setId(i);
-      user.setName(generateRandomString());
-      user.setSurname(generateRandomString());
-      user.setBirthdate(generateRandomDate(1920, 2002));
-      user.setMovies(generateRandomLongs(new Random().nextInt(500), maxMovieId));
-      user.setAudioTracks(generateRandomLongs(new Random().nextInt(1000), maxAudioTrackId));
-      users.add(user);
+  /**
+   * Skews who sends and receives messages, as a Zipf exponent over user ids: with a positive value
+   * a few users own most inboxes, which is what makes {@code messages_by_user} partitions hot.
+   * {@code 0} spreads messages uniformly.
+   */
+  public static void setMessageSkew(double exponent) {
+    if (exponent < 0) {
+      throw new IllegalArgumentException("Message skew must not be negative: " + exponent);
     }
+    messageUsers = new SkewedIds(exponent);
+  }
+
+  /** Number of friends per user, e.g. {@link LongDistribution#powerLaw} for a realistic graph. */
+  public static void setFriendCounts(LongDistribution distribution) {
+    friendCounts = distribution;
+  }
+
+  public static List<User> generateUsers(
+      long startUsersId, long endUsersId, long maxMovieId, long maxAudioTrackId) {
+
+    LOGGER.info("Generating list of users...");
+    List<User> users =
+        generateInParallel(
+            startUsersId, endUsersId, id -> generateUser(id, maxMovieId, maxAudioTrackId));
 
     LOGGER.info(SUCCESS);
     return users;
   }
 
+  public static void generateUsers(
+      long startUsersId,
+      long endUsersId,
+      long maxMovieId,
+      long maxAudioTrackId,
+      Consumer<User> sink) {
+
+    for (long i = startUsersId; i < endUsersId; i++) {
+      sink.accept(generateUser(i, maxMovieId, maxAudioTrackId));
+    }
+  }
+
   public static List<Message> generateMessages(
       long startMessagesId, long endMessagesId, long maxUserId) {
     LOGGER.info("Generating list of messages...");
-    List<Message> messages = new ArrayList<>();
+    LongDistribution users = messageUsers.upTo(maxUserId);
+    List<Message> messages =
+        generateInParallel(startMessagesId, endMessagesId, id -> generateMessage(id, users));
 
-    List<Long> receiverAndRecipient = generateRandomLongs(2, maxUserId);
+    LOGGER.info(SUCCESS);
+    return messages;
+  }
 
-    for (long i = startMessagesId; i < endMessagesId; i++) {
+  /** Sender and recipient are drawn per message, from the distribution set by the skew. */
+  public static void generateMessages(
+      long startMessagesId, long endMessagesId, long maxUserId, Consumer<Message> sink) {
 
-      Message message = new Message();
-      message.setId(i);
-      message.setSenderId(receiverAndRecipient.get(0));
-      message.setRecipientId(receiverAndRecipient.get(1));
-      message.setText(generateRandomString());
-      message.setDate(generateRandomDate(2015, 2020));
-      messages.add(message);
+    LongDistribution users = messageUsers.upTo(maxUserId);
+    for (long i = startMessagesId; i < endMessagesId; i++) {
+      sink.accept(generateMessage(i, users));
     }
-
-    LOGGER.info(SUCCESS);
-    return messages;
   }
 
   public static List<Movie> generateMovies(long startMoviesId, long endMoviesId) {
     LOGGER.info("Generating list of movies...");
-    List<Movie> movies = new ArrayList<>();
-
-    for (long i = startMoviesId; i < endMoviesId; i++) {
-
-      Movie movie = new Movie();
-      movie.setId(i);
-      movie.setTitle(generateRandomString());
-      movie.setCountry(generateRandomString());
-      movie.setYear(generateRandomDate(1930, 2020));
-      movies.add(movie);
-    }
+    List<Movie> movies =
+        generateInParallel(startMoviesId, endMoviesId, DataGenerator::generateMovie);
 
     LOGGER.info(SUCCESS);
     return movies;
   }
 
+  public static void generateMovies(long startMoviesId, long endMoviesId, Consumer<Movie> sink) {
+
+    for (long i = startMoviesId; i < endMoviesId; i++) {
+      sink.accept(generateMovie(i));
+    }
+  }
+
   public static List<AudioTrack> generateAudioTracks(
       long startAudioTracksId, long endAudioTracksId) {
     LOGGER.info("Generating list of audio tracks...");
-    List<AudioTrack> audioTracks = new ArrayList<>();
-
-    for (long i = startAudioTracksId; i < endAudioTracksId; i++) {
-
-      AudioTrack audioTrack = new AudioTrack();
-      audioTrack.setId(i);
-      audioTrack.setTitle(generateRandomString());
-      audioTrack.setAuthor(generateRandomString());
-      audioTrack.setAlbum(generateRandomString());
-      audioTrack.setYear(generateRandomDate(1950, 2020));
-      audioTracks.add(audioTrack);
-    }
+    List<AudioTrack> audioTracks =
+        generateInParallel(
+            startAudioTracksId, endAudioTracksId, DataGenerator::generateAudioTrack);
 
     LOGGER.info(SUCCESS);
     return audioTracks;
   }
 
+  public static void generateAudioTracks(
+      long startAudioTracksId, long endAudioTracksId, Consumer<AudioTrack> sink) {
+
+    for (long i = startAudioTracksId; i < endAudioTracksId; i++) {
+      sink.accept(generateAudioTrack(i));
+    }
+  }
+
   public static List<Friendship> generateFriendships(
       long startFriendshipsId, long endFriendshipsId, long maxUsersId) {
     LOGGER.info("Generating list of friendships...");
-    List<Friendship> friendships = new ArrayList<>();
-
-    for (long i = startFriendshipsId; i < endFriendshipsId; i++) {
-      Friendship friendship = new Friendship();
-      friendship.setUserId(i);
-      friendship.setFriendsIds(generateRandomLongs(new Random().nextInt(500), maxUsersId));
-      friendship.setDate(generateRandomDate(2015, 2020));
-      friendships.add(friendship);
-    }
+    List<Friendship> friendships =
+        generateInParallel(
+            startFriendshipsId, endFriendshipsId, id -> generateFriendship(id, maxUsersId));
 
     LOGGER.info(SUCCESS);
     return friendships;
   }
 
-  /** Generators for words, numbers, dates */
-  private static String generateRandomString() {
+  public static void generateFriendships(
+      long startFriendshipsId, long endFriendshipsId, long maxUsersId, Consumer<Friendship> sink) {
 
-    String randomString;
-    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
-    int maxBound = 20;
-    int minBound = 3;
+    for (long i = startFriendshipsId; i < endFriendshipsId; i++) {
+      sink.accept(generateFriendship(i, maxUsersId));
+    }
+  }
+
+  private static User generateUser(long id, long maxMovieId, long maxAudioTrackId) {
+    SplittableRandom random = random(USERS_STREAM, id);
+
+    User user = new User();
+    user.setId(id);
+    user.setName(generateRandomString(random));
+    user.setSurname(generateRandomString(random));
+    user.setBirthdate(generateRandomDate(random, 1920, 2002));
+    user.setMovies(
+        DistinctSampler.sample(random, random.nextInt(500), popularIds.upTo(maxMovieId)));
+    user.setAudioTracks(
+        DistinctSampler.sample(random, random.nextInt(1000), popularIds.upTo(maxAudioTrackId)));
+    return user;
+  }
 
-    StringBuilder sb = new StringBuilder();
-    int lengthOfBuiltString = rm.nextInt(maxBound - minBound) + minBound;
+  private static Message generateMessage(long id, LongDistribution users) {
+    SplittableRandom random = random(MESSAGES_STREAM, id);
 
-    for (int n = 0; n < lengthOfBuiltString; n++) {
-      int index = rm.nextInt(alphabet.length());
-      char randomChar = alphabet.charAt(index);
-      sb.append(randomChar);
+    long senderId = users.sample(random);
+    long recipientId = users.sample(random);
+    if (recipientId == senderId) {
+      recipientId = recipientId + 1 < users.getMax() ? recipientId + 1 : users.getMin();
     }
 
-    randomString = sb.toString();
+    Message message = new Message();
+    message.setId(id);
+    message.setSenderId(senderId);
+    message.setRecipientId(recipientId);
+    message.setText(generateRandomString(random));
+    message.setDate(generateRandomDate(random, 2015, 2020));
+    return message;
+  }
+
+  private static Movie generateMovie(long id) {
+    SplittableRandom random = random(MOVIES_STREAM, id);
+
+    Movie movie = new Movie();
+    movie.setId(id);
+    movie.setTitle(generateRandomString(random));
+    movie.setCountry(generateRandomString(random));
+    movie.setYear(generateRandomDate(random, 1930, 2020));
+    return movie;
+  }
+
+  private static AudioTrack generateAudioTrack(long id) {
+    SplittableRandom random = random(AUDIO_TRACKS_STREAM, id);
 
-    return randomString;
+    AudioTrack audioTrack = new AudioTrack();
+    audioTrack.setId(id);
+    audioTrack.setTitle(generateRandomString(random));
+    audioTrack.setAuthor(generateRandomString(random));
+    audioTrack.setAlbum(generateRandomString(random));
+    audioTrack.setYear(generateRandomDate(random, 1950, 2020));
+    return audioTrack;
   }
 
-  private static List<Long> generateRandomLongs(int amount, long max) {
+  private static Friendship generateFriendship(long userId, long maxUsersId) {
+    SplittableRandom random = random(FRIENDSHIPS_STREAM, userId);
 
-    Set<Long> set = new HashSet<>();
+    Friendship friendship = new Friendship();
+    friendship.setUserId(userId);
+    int friends = (int) friendCounts.sample(random);
+    friendship.setFriendsIds(DistinctSampler.sample(random, friends, popularIds.upTo(maxUsersId)));
+    friendship.setDate(generateRandomDate(random, 2015, 2020));
+    return friendship;
+  }
 
-    while (set.size() < amount) {
-      set.add(ThreadLocalRandom.current().nextLong(1, max));
+  /** Generates {@code [startId, endId)} on the common fork-join pool, keeping id order. */
+  private static <T> List<T> generateInParallel(
+      long startId, long endId, LongFunction<T> generator) {
+    return LongStream.range(startId, endId)
+        .parallel()
+        .mapToObj(generator)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * The generator of one row. Its seed is a mix of the root seed, the table stream and the id,
+   * the same mixing {@link SplittableRandom#split()} applies, so rows are statistically
+   * independent of each other.
+   */
+  private static SplittableRandom random(long stream, long id) {
+    return new SplittableRandom(mix64(seed + mix64(stream * GOLDEN_GAMMA) + id * GOLDEN_GAMMA));
+  }
+
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /** Generators for words, numbers, dates */
+  private static String generateRandomString(SplittableRandom random) {
+
+    char[] chars = new char[random.nextInt(MIN_STRING_LENGTH, MAX_STRING_LENGTH)];
+    for (int n = 0; n < chars.length; n++) {
+      chars[n] = ALPHABET[random.nextInt(ALPHABET.length)];
     }
-    return new ArrayList<>(set);
+    return new String(chars);
   }
 
-  private static Date generateRandomDate(int fromDate, int toDate) {
+  private static Date generateRandomDate(SplittableRandom random, int fromDate, int toDate) {
 
     long aDay = TimeUnit.DAYS.toMillis(1);
-    long now = new Date().getTime();
-    long start = new Date(now - aDay * 365 * (2020 - fromDate)).getTime();
-    long end = new Date(now - aDay * 365 * (2020 - toDate)).getTime();
+    long start = REFERENCE_MILLIS - aDay * 365 * (2020 - fromDate);
+    long end = REFERENCE_MILLIS - aDay * 365 * (2020 - toDate);
+
+    return new Date(random.nextLong(start, end));
+  }
 
-    return new Date(ThreadLocalRandom.current().nextLong(start, end));
+  /**
+   * Ids in {@code [1, max)}, uniform or Zipf-skewed by one exponent. Each bound's distribution is
+   * built once and shared by every row, as setting up a Zipf costs far more than sampling it.
+   */
+  private static final class SkewedIds {
+
+    private final double exponent;
+    private final Map<Long, LongDistribution> byMax = new ConcurrentHashMap<>();
+
+    private SkewedIds(double exponent) {
+      this.exponent = exponent;
+    }
+
+    LongDistribution upTo(long max) {
+      return byMax.computeIfAbsent(
+          max,
+          bound ->
+              exponent == 0
+                  ? LongDistribution.uniform(1, bound)
+                  : LongDistribution.zipf(1, bound, exponent));
+    }
   }
 }
@@ -1,31 +1,44 @@
 package connection;
 
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.LocalDate;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Session;
+import metrics.Instrumentation;
+import metrics.WriterMetrics;
 import model.*;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 public class DataLoader {
 
   private static final Logger LOGGER = Logger.getLogger(DataLoader.class);
 
-  private static final String BATCH_START = "Storing batch #%s/%s to the CassandraDB...";
-  private static final String BATCH_FINISH = "Batch #%s/%s stored successfully!";
+  private static final String LOAD_START = "Storing %s to the CassandraDB...";
+  private static final String LOAD_FINISH = "%s rows of %s stored successfully!";
   private static final String DELIMITER = "-----------------------------------------";
 
-  private static final String INSERT_USER_CQL =
-      "insert into sntask5.users (id, name, surname, birthdate, audioTracks, movies) values (?, ?, ?, ?, ?, ?)";
-  private static final String INSERT_MOVIE_CQL =
+  public static final String INSERT_USER_CQL =
+      "insert into sntask5.users (id, name, surname, birthdate, audioTracks, movies, movie_count)"
+          + " values (?, ?, ?, ?, ?, ?, ?)";
+  public static final String INSERT_MOVIE_CQL =
       "insert into sntask5.movies (id, title, country, year) values (?, ?, ?, ?)";
-  private static final String INSERT_AUDIO_TRACK_CQL =
+  public static final String INSERT_AUDIO_TRACK_CQL =
       "insert into sntask5.audioTracks (id, title, author, album, year) values (?, ?, ?, ?, ?)";
-  private static final String INSERT_MESSAGE_CQL =
+  public static final String INSERT_MESSAGE_CQL =
       "insert into sntask5.messages (id, senderid, recipientid, text, date) values (?, ?, ?, ?, ?)";
-  private static final String INSERT_FRIENDSHIP_CQL =
+  public static final String INSERT_MESSAGE_BY_USER_CQL =
+      "insert into sntask5.messages_by_user (userid, month, sent, messageid, senderid, text)"
+          + " values (?, ?, ?, ?, ?, ?)";
+  public static final String INSERT_FRIENDSHIP_CQL =
       "insert into sntask5.friendships (userId, friendsIds, date) values (?, ?, ?)";
+  public static final String INSERT_FRIEND_EDGE_CQL =
+      "insert into sntask5.friends_by_user (userid, friendid, since) values (?, ?, ?)";
 
   public static final long BATCH_SIZE = 100_000;
 
@@ -35,186 +48,506 @@ public class DataLoader {
   public static final long NUMBER_MESSAGES = 1_000_000;
   public static final long NUMBER_FRIENDSHIPS = 1_000_000;
 
+  public static final int MAX_IN_FLIGHT = 256;
+  public static final int MIN_IN_FLIGHT = 8;
+  public static final int MAX_RETRIES = 3;
+
+  /** Write latency the adaptive in-flight limit aims to keep the p99 under. */
+  public static final long WRITE_P99_TARGET_MILLIS = 50;
+
+  public static final int GENERATOR_THREADS = Runtime.getRuntime().availableProcessors();
+  public static final int WRITER_THREADS = 2;
+  public static final int QUEUE_CAPACITY = 10_000;
+
+  /** Chunks written between two checkpoints; one per generator thread keeps all of them busy. */
+  public static final int CHECKPOINT_CHUNKS = GENERATOR_THREADS;
+
+  /** Failure causes attached to the exception of a load with failed writes. */
+  private static final int REPORTED_FAILURES = 10;
+
+  private static volatile LoadCheckpoint checkpoint;
+
   private DataLoader() {}
 
+  /**
+   * Records completed id ranges in {@code newCheckpoint}, so that later loads skip them, or stops
+   * checkpointing if it is {@code null}.
+   */
+  public static void setCheckpoint(LoadCheckpoint newCheckpoint) {
+    checkpoint = newCheckpoint;
+  }
+
+  /**
+   * A limiter that starts at a quarter of {@link #MAX_IN_FLIGHT} and adapts between {@link
+   * #MIN_IN_FLIGHT} and {@link #MAX_IN_FLIGHT} to keep writes within {@link
+   * #WRITE_P99_TARGET_MILLIS}.
+   */
+  public static ConcurrencyLimiter newWriteLimiter() {
+    return new ConcurrencyLimiter(
+        MIN_IN_FLIGHT,
+        MAX_IN_FLIGHT / 4,
+        MAX_IN_FLIGHT,
+        WRITE_P99_TARGET_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Loads every table from scratch, recording progress in a new default checkpoint file. */
   public static void executeLoading() {
-    loadMovies(BATCH_SIZE, NUMBER_OF_MOVIES);
-    loadAudioTracks(BATCH_SIZE, NUMBER_AUDIO_TRACKS);
-    loadUsers(BATCH_SIZE, NUMBER_OF_USERS, NUMBER_OF_MOVIES, NUMBER_AUDIO_TRACKS);
-    loadFriendships(BATCH_SIZE, NUMBER_FRIENDSHIPS, NUMBER_OF_USERS);
-    loadMessages(BATCH_SIZE, NUMBER_MESSAGES, NUMBER_OF_USERS);
+    setCheckpoint(LoadCheckpoint.fresh(LoadCheckpoint.DEFAULT_FILE));
+    loadAllTables();
   }
 
-  public static void loadUsers(
-      long batchSize, long numberOfUsers, long maxNumberOfMovies, long maxNumberOfAudioTracks) {
+  /**
+   * Loads only the id ranges missing from the default checkpoint file. Fails if the interrupted
+   * load used another seed, batch size or table sizes. Counter tables may have been updated for
+   * rows of unfinished ranges, so reconcile them afterwards.
+   */
+  public static void resumeLoading() {
+    setCheckpoint(LoadCheckpoint.open(LoadCheckpoint.DEFAULT_FILE));
+    loadAllTables();
+  }
 
+  private static void loadAllTables() {
     Session session = CassandraConnection.getSession();
-    PreparedStatement preparedStatement = session.prepare(INSERT_USER_CQL);
-
-    long numberOfBatches = numberOfUsers / batchSize;
-    long startUsersId = 0;
-    long endUsersId = batchSize;
-
-    for (long i = 0; i < numberOfBatches; i++) {
-
-      List<User> users =
-          DataGenerator.generateUsers(
-              startUsersId, endUsersId, maxNumberOfMovies, maxNumberOfAudioTracks);
-      LOGGER.info(String.format(BATCH_START, i + 1, numberOfBatches));
-
-      users.forEach(
-          user ->
-              session.execute(
-                  preparedStatement.bind(
-                      user.getId(),
-                      user.getName(),
-                      user.getSurname(),
-                      LocalDate.fromMillisSinceEpoch(
-                          user.getBirthdate().toInstant().toEpochMilli()),
-                      user.getAudioTracks(),
-                      user.getMovies())));
-
-      LOGGER.info(String.format(BATCH_FINISH, i + 1, numberOfBatches));
-      LOGGER.info(DELIMITER);
-
-      startUsersId = endUsersId;
-      endUsersId += batchSize;
-    }
+    new LoadScheduler(session, MAX_IN_FLIGHT)
+        .submit("movies", table -> loadMovies(table, BATCH_SIZE, NUMBER_OF_MOVIES))
+        .submit("audio tracks", table -> loadAudioTracks(table, BATCH_SIZE, NUMBER_AUDIO_TRACKS))
+        .submit(
+            "users",
+            table ->
+                loadUsers(
+                    table, BATCH_SIZE, NUMBER_OF_USERS, NUMBER_OF_MOVIES, NUMBER_AUDIO_TRACKS))
+        .submit(
+            "friendships",
+            table -> loadFriendships(table, BATCH_SIZE, NUMBER_FRIENDSHIPS, NUMBER_OF_USERS))
+        .submit(
+            "friends by user",
+            table -> loadFriendsByUser(table, BATCH_SIZE, NUMBER_FRIENDSHIPS, NUMBER_OF_USERS))
+        .submit(
+            "messages", table -> loadMessages(table, BATCH_SIZE, NUMBER_MESSAGES, NUMBER_OF_USERS))
+        .submit(
+            "messages by user",
+            table -> loadMessagesByUser(table, BATCH_SIZE, NUMBER_MESSAGES, NUMBER_OF_USERS))
+        .run();
+  }
 
-    CassandraConnection.closeSession();
+  public static void loadUsers(
+      long batchSize, long numberOfUsers, long maxNumberOfMovies, long maxNumberOfAudioTracks) {
+    loadAlone(
+        "users",
+        table ->
+            loadUsers(table, batchSize, numberOfUsers, maxNumberOfMovies, maxNumberOfAudioTracks));
+  }
+
+  public static void loadUsers(
+      LoadScheduler.TableLoad table,
+      long batchSize,
+      long numberOfUsers,
+      long maxNumberOfMovies,
+      long maxNumberOfAudioTracks) {
+    load(
+        table,
+        INSERT_USER_CQL,
+        batchSize,
+        numberOfUsers,
+        "movies " + maxNumberOfMovies + ", audio tracks " + maxNumberOfAudioTracks,
+        (start, end, sink) ->
+            DataGenerator.generateUsers(
+                start, end, maxNumberOfMovies, maxNumberOfAudioTracks, sink),
+        DataLoader::bindUser);
   }
 
   public static void loadMovies(long batchSize, long numberOfMovies) {
+    loadAlone("movies", table -> loadMovies(table, batchSize, numberOfMovies));
+  }
 
-    Session session = CassandraConnection.getSession();
-    PreparedStatement preparedStatement = session.prepare(INSERT_MOVIE_CQL);
+  public static void loadMovies(
+      LoadScheduler.TableLoad table, long batchSize, long numberOfMovies) {
+    load(
+        table,
+        INSERT_MOVIE_CQL,
+        batchSize,
+        numberOfMovies,
+        "",
+        DataGenerator::generateMovies,
+        DataLoader::bindMovie);
+  }
 
-    long numberOfBatches = numberOfMovies / batchSize;
-    long startMoviesId = 0;
-    long endMoviesId = batchSize;
+  public static void loadAudioTracks(long batchSize, long numberOfAudioTracks) {
+    loadAlone("audio tracks", table -> loadAudioTracks(table, batchSize, numberOfAudioTracks));
+  }
 
-    for (long i = 0; i < numberOfBatches; i++) {
+  public static void loadAudioTracks(
+      LoadScheduler.TableLoad table, long batchSize, long numberOfAudioTracks) {
+    load(
+        table,
+        INSERT_AUDIO_TRACK_CQL,
+        batchSize,
+        numberOfAudioTracks,
+        "",
+        DataGenerator::generateAudioTracks,
+        DataLoader::bindAudioTrack);
+  }
 
-      List<Movie> movies = DataGenerator.generateMovies(startMoviesId, endMoviesId);
+  public static void loadMessages(long batchSize, long numberOfMessages, long maxNumberOfUsers) {
+    loadAlone(
+        "messages", table -> loadMessages(table, batchSize, numberOfMessages, maxNumberOfUsers));
+  }
 
-      LOGGER.info(String.format(BATCH_START, i + 1, numberOfBatches));
-      movies.forEach(
-          movie ->
-              session.execute(
-                  preparedStatement.bind(
-                      movie.getId(),
-                      movie.getTitle(),
-                      movie.getCountry(),
-                      LocalDate.fromMillisSinceEpoch(movie.getYear().toInstant().toEpochMilli()))));
+  public static void loadMessages(
+      LoadScheduler.TableLoad table,
+      long batchSize,
+      long numberOfMessages,
+      long maxNumberOfUsers) {
+    load(
+        table,
+        INSERT_MESSAGE_CQL,
+        batchSize,
+        numberOfMessages,
+        "users " + maxNumberOfUsers,
+        (start, end, sink) -> DataGenerator.generateMessages(start, end, maxNumberOfUsers, sink),
+        DataLoader::bindMessage,
+        new MessagesByDayCounter());
+  }
 
-      LOGGER.info(String.format(BATCH_FINISH, i + 1, numberOfBatches));
-      LOGGER.info(DELIMITER);
+  /**
+   * Writes the inbox copy of every message. The generator is seeded, so this regenerates exactly
+   * the rows {@link #loadMessages} writes and the two loads can run side by side.
+   */
+  public static void loadMessagesByUser(
+      long batchSize, long numberOfMessages, long maxNumberOfUsers) {
+    loadAlone(
+        "messages by user",
+        table -> loadMessagesByUser(table, batchSize, numberOfMessages, maxNumberOfUsers));
+  }
 
-      startMoviesId = endMoviesId;
-      endMoviesId += batchSize;
-    }
-    CassandraConnection.closeSession();
+  public static void loadMessagesByUser(
+      LoadScheduler.TableLoad table,
+      long batchSize,
+      long numberOfMessages,
+      long maxNumberOfUsers) {
+    load(
+        table,
+        INSERT_MESSAGE_BY_USER_CQL,
+        batchSize,
+        numberOfMessages,
+        "users " + maxNumberOfUsers,
+        (start, end, sink) -> DataGenerator.generateMessages(start, end, maxNumberOfUsers, sink),
+        DataLoader::bindMessageByUser);
   }
 
-  public static void loadAudioTracks(long batchSize, long numberOfAudioTracks) {
+  public static void loadFriendships(
+      long batchSize, long numberOfFriendships, long maxNumberOfUsers) {
+    loadAlone(
+        "friendships",
+        table -> loadFriendships(table, batchSize, numberOfFriendships, maxNumberOfUsers));
+  }
 
-    Session session = CassandraConnection.getSession();
-    PreparedStatement preparedStatement = session.prepare(INSERT_AUDIO_TRACK_CQL);
-
-    long numberOfBatches = numberOfAudioTracks / batchSize;
-    long startAudioTracksId = 0;
-    long endAudioTracksId = batchSize;
-
-    for (long i = 0; i < numberOfBatches; i++) {
-      List<AudioTrack> audioTracks =
-          DataGenerator.generateAudioTracks(startAudioTracksId, endAudioTracksId);
-
-      LOGGER.info(String.format(BATCH_START, i + 1, numberOfBatches));
-      audioTracks.forEach(
-          audioTrack ->
-              session.execute(
-                  preparedStatement.bind(
-                      audioTrack.getId(),
-                      audioTrack.getTitle(),
-                      audioTrack.getAuthor(),
-                      audioTrack.getAlbum(),
-                      LocalDate.fromMillisSinceEpoch(
-                          audioTrack.getYear().toInstant().toEpochMilli()))));
-
-      LOGGER.info(String.format(BATCH_FINISH, i + 1, numberOfBatches));
-      LOGGER.info(DELIMITER);
-
-      startAudioTracksId = endAudioTracksId;
-      endAudioTracksId += batchSize;
+  public static void loadFriendships(
+      LoadScheduler.TableLoad table,
+      long batchSize,
+      long numberOfFriendships,
+      long maxNumberOfUsers) {
+    load(
+        table,
+        INSERT_FRIENDSHIP_CQL,
+        batchSize,
+        numberOfFriendships,
+        "users " + maxNumberOfUsers,
+        (start, end, sink) ->
+            DataGenerator.generateFriendships(start, end, maxNumberOfUsers, sink),
+        DataLoader::bindFriendship,
+        new FriendshipCounters());
+  }
+
+  /**
+   * Writes every friendship as one {@code friends_by_user} row per friend. The generator is seeded,
+   * so the edges match the lists {@link #loadFriendships} writes.
+   */
+  public static void loadFriendsByUser(
+      long batchSize, long numberOfFriendships, long maxNumberOfUsers) {
+    loadAlone(
+        "friends by user",
+        table -> loadFriendsByUser(table, batchSize, numberOfFriendships, maxNumberOfUsers));
+  }
+
+  public static void loadFriendsByUser(
+      LoadScheduler.TableLoad table,
+      long batchSize,
+      long numberOfFriendships,
+      long maxNumberOfUsers) {
+    load(
+        table,
+        INSERT_FRIEND_EDGE_CQL,
+        batchSize,
+        numberOfFriendships,
+        "users " + maxNumberOfUsers,
+        (start, end, sink) ->
+            DataGenerator.generateFriendships(
+                start, end, maxNumberOfUsers, friendship -> forEachEdge(friendship, sink)),
+        DataLoader::bindFriendEdge);
+  }
+
+  static BoundStatement bindUser(PreparedStatement preparedStatement, User user) {
+    return preparedStatement.bind(userValues(user));
+  }
+
+  static BoundStatement bindMovie(PreparedStatement preparedStatement, Movie movie) {
+    return preparedStatement.bind(movieValues(movie));
+  }
+
+  static BoundStatement bindAudioTrack(PreparedStatement preparedStatement, AudioTrack audioTrack) {
+    return preparedStatement.bind(audioTrackValues(audioTrack));
+  }
+
+  static BoundStatement bindMessage(PreparedStatement preparedStatement, Message message) {
+    return preparedStatement.bind(messageValues(message));
+  }
+
+  static BoundStatement bindMessageByUser(PreparedStatement preparedStatement, Message message) {
+    return preparedStatement.bind(messageByUserValues(message));
+  }
+
+  static BoundStatement bindFriendship(PreparedStatement preparedStatement, Friendship friendship) {
+    return preparedStatement.bind(friendshipValues(friendship));
+  }
+
+  static BoundStatement bindFriendEdge(PreparedStatement preparedStatement, FriendEdge edge) {
+    return preparedStatement.bind(friendEdgeValues(edge));
+  }
+
+  /** Bind values in the column order of {@link #INSERT_USER_CQL}. */
+  public static Object[] userValues(User user) {
+    return new Object[] {
+      user.getId(),
+      user.getName(),
+      user.getSurname(),
+      LocalDate.fromMillisSinceEpoch(user.getBirthdate().toInstant().toEpochMilli()),
+      user.getAudioTracks(),
+      user.getMovies(),
+      user.getMovies().size()
+    };
+  }
+
+  public static Object[] movieValues(Movie movie) {
+    return new Object[] {
+      movie.getId(),
+      movie.getTitle(),
+      movie.getCountry(),
+      LocalDate.fromMillisSinceEpoch(movie.getYear().toInstant().toEpochMilli())
+    };
+  }
+
+  public static Object[] audioTrackValues(AudioTrack audioTrack) {
+    return new Object[] {
+      audioTrack.getId(),
+      audioTrack.getTitle(),
+      audioTrack.getAuthor(),
+      audioTrack.getAlbum(),
+      LocalDate.fromMillisSinceEpoch(audioTrack.getYear().toInstant().toEpochMilli())
+    };
+  }
+
+  public static Object[] messageValues(Message message) {
+    return new Object[] {
+      message.getId(),
+      message.getSenderId(),
+      message.getRecipientId(),
+      message.getText(),
+      LocalDate.fromMillisSinceEpoch(message.getDate().toInstant().toEpochMilli())
+    };
+  }
+
+  /** Keyed by recipient: the row lands in their inbox partition for the message's month. */
+  public static Object[] messageByUserValues(Message message) {
+    return new Object[] {
+      message.getRecipientId(),
+      Months.month(message.getDate().getTime()),
+      message.getDate(),
+      message.getId(),
+      message.getSenderId(),
+      message.getText()
+    };
+  }
+
+  public static Object[] friendshipValues(Friendship friendship) {
+    return new Object[] {
+      friendship.getUserId(),
+      friendship.getFriendsIds(),
+      LocalDate.fromMillisSinceEpoch(friendship.getDate().toInstant().toEpochMilli())
+    };
+  }
+
+  public static Object[] friendEdgeValues(FriendEdge edge) {
+    return new Object[] {
+      edge.getUserId(),
+      edge.getFriendId(),
+      LocalDate.fromMillisSinceEpoch(edge.getSince().toInstant().toEpochMilli())
+    };
+  }
+
+  /** Expands one friendship row into a {@link FriendEdge} per friend. */
+  public static void forEachEdge(Friendship friendship, Consumer<FriendEdge> sink) {
+    LongIdList friendsIds = friendship.getFriendsIds();
+    for (int i = 0; i < friendsIds.size(); i++) {
+      sink.accept(new FriendEdge(friendship.getUserId(), friendsIds.get(i), friendship.getDate()));
     }
-    CassandraConnection.closeSession();
   }
 
-  public static void loadMessages(long batchSize, long numberOfMessages, long maxNumberOfUsers) {
+  private static void loadAlone(String tableName, Consumer<LoadScheduler.TableLoad> task) {
     Session session = CassandraConnection.getSession();
-    PreparedStatement preparedStatement = session.prepare(INSERT_MESSAGE_CQL);
-
-    long startMessagesId = 0;
-    long endMessagesId = batchSize;
-
-    long numberOfBatches = numberOfMessages / batchSize;
-    for (long i = 0; i < numberOfBatches; i++) {
-
-      List<Message> messages =
-          DataGenerator.generateMessages(startMessagesId, endMessagesId, maxNumberOfUsers);
-      LOGGER.info(String.format(BATCH_START, i + 1, numberOfBatches));
-
-      messages.forEach(
-          message ->
-              session.execute(
-                  preparedStatement.bind(
-                      message.getId(),
-                      message.getSenderId(),
-                      message.getRecipientId(),
-                      message.getText(),
-                      LocalDate.fromMillisSinceEpoch(
-                          message.getDate().toInstant().toEpochMilli()))));
-
-      LOGGER.info(String.format(BATCH_FINISH, i + 1, numberOfBatches));
-      LOGGER.info(DELIMITER);
-
-      startMessagesId = endMessagesId;
-      endMessagesId += batchSize;
+    new LoadScheduler(session, MAX_IN_FLIGHT).submit(tableName, task).run();
+  }
+
+  private static <T> void load(
+      LoadScheduler.TableLoad table,
+      String insertCql,
+      long batchSize,
+      long numberOfRows,
+      String generation,
+      LoadPipeline.RangeGenerator<T> generator,
+      BiFunction<PreparedStatement, T, BoundStatement> binder) {
+    load(table, insertCql, batchSize, numberOfRows, generation, generator, binder, null);
+  }
+
+  private static <T> void load(
+      LoadScheduler.TableLoad table,
+      String insertCql,
+      long batchSize,
+      long numberOfRows,
+      String generation,
+      LoadPipeline.RangeGenerator<T> generator,
+      BiFunction<PreparedStatement, T, BoundStatement> binder,
+      LoadListener<T> listener) {
+
+    Session session = table.getSession();
+    PreparedStatement preparedStatement = session.prepare(insertCql).setIdempotent(true);
+
+    LOGGER.info(String.format(LOAD_START, table.getName()));
+    WriterMetrics metrics = Instrumentation.writer(table.getName());
+    long rows;
+    try (AsyncWriter writer =
+            new AsyncWriter(session, MAX_IN_FLIGHT, MAX_RETRIES, table.getInFlightBudget())
+                .withMetrics(metrics)
+                .withLimiter(newWriteLimiter());
+        TokenAwareBatcher batcher = new TokenAwareBatcher(writer, session)) {
+      if (listener != null) {
+        listener.onStart(session, writer);
+      }
+      LoadPipeline<T> pipeline =
+          new LoadPipeline<>(table.getName(), GENERATOR_THREADS, WRITER_THREADS, QUEUE_CAPACITY);
+      LoadCheckpoint loadCheckpoint = checkpoint;
+      String checkpointKey = checkpointKey(table.getName(), numberOfRows, batchSize, generation);
+      rows = 0;
+      for (long[] range : pendingRanges(loadCheckpoint, checkpointKey, numberOfRows, batchSize)) {
+        rows +=
+            pipeline.run(
+                range[0],
+                range[1],
+                batchSize,
+                generator,
+                row -> {
+                  batcher.add(binder.apply(preparedStatement, row));
+                  if (listener != null) {
+                    listener.onRow(row);
+                  }
+                  table.recordRow();
+                  metrics.recordRow();
+                });
+        if (loadCheckpoint != null) {
+          if (listener != null) {
+            listener.flush(writer);
+          }
+          batcher.flush();
+          writer.awaitCompletion();
+          if (writer.getFailed() > 0) {
+            throw new IllegalStateException(
+                String.format(
+                    "%s: writes failed in ids %s to %s, not checkpointed",
+                    table.getName(), range[0], range[1]));
+          }
+          loadCheckpoint.markComplete(checkpointKey, range[0], range[1]);
+        }
+      }
+      batcher.flush();
+      if (listener != null) {
+        listener.onFinish(session, writer);
+      }
+      writer.awaitCompletion();
+      if (writer.getFailed() > 0) {
+        IllegalStateException failure =
+            new IllegalStateException(
+                String.format(
+                    "%s: %s writes failed after retries", table.getName(), writer.getFailed()));
+        writer.getFailures().stream()
+            .limit(REPORTED_FAILURES)
+            .forEach(cause -> failure.addSuppressed(cause.getCause()));
+        throw failure;
+      }
     }
+    LOGGER.info(String.format(LOAD_FINISH, rows, table.getName()));
+    LOGGER.info(DELIMITER);
+  }
 
-    CassandraConnection.closeSession();
+  /**
+   * Names a load by everything that decides which rows an id range holds, so ranges recorded with
+   * other parameters are never taken for this load's ranges.
+   */
+  private static String checkpointKey(
+      String tableName, long numberOfRows, long batchSize, String generation) {
+    return String.format(
+        "%s (seed %s, rows %s, batch %s%s)",
+        tableName,
+        DataGenerator.getSeed(),
+        numberOfRows,
+        batchSize,
+        generation.isEmpty() ? "" : ", " + generation);
   }
 
-  public static void loadFriendships(
-      long batchSize, long numberOfFriendships, long maxNumberOfUsers) {
-    Session session = CassandraConnection.getSession();
-    PreparedStatement preparedStatement = session.prepare(INSERT_FRIENDSHIP_CQL);
-
-    long startFriendshipsId = 0;
-    long endFriendshipsId = batchSize;
-
-    long numberOfBatches = numberOfFriendships / batchSize;
-    for (long i = 0; i < numberOfBatches; i++) {
-      List<Friendship> friendships =
-          DataGenerator.generateFriendships(startFriendshipsId, endFriendshipsId, maxNumberOfUsers);
-      LOGGER.info(String.format(BATCH_START, i + 1, numberOfBatches));
-
-      friendships.forEach(
-          friendship ->
-              session.execute(
-                  preparedStatement.bind(
-                      friendship.getUserId(),
-                      friendship.getFriendsIds(),
-                      LocalDate.fromMillisSinceEpoch(
-                          friendship.getDate().toInstant().toEpochMilli()))));
-
-      LOGGER.info(String.format(BATCH_FINISH, i + 1, numberOfBatches));
-      LOGGER.info(DELIMITER);
-
-      startFriendshipsId = endFriendshipsId;
-      endFriendshipsId += batchSize;
+  /**
+   * Splits {@code [0, numberOfRows)} into chunks of {@code batchSize} ids, drops the chunks the
+   * checkpoint lists as complete and groups the rest into contiguous ranges of up to {@link
+   * #CHECKPOINT_CHUNKS} chunks. Without a checkpoint the whole id range is one range.
+   */
+  private static List<long[]> pendingRanges(
+      LoadCheckpoint loadCheckpoint, String checkpointKey, long numberOfRows, long batchSize) {
+    List<long[]> ranges = new ArrayList<>();
+    if (loadCheckpoint == null) {
+      ranges.add(new long[] {0, numberOfRows});
+      return ranges;
+    }
+
+    String tableName = checkpointKey.substring(0, checkpointKey.indexOf(" ("));
+    for (String load : loadCheckpoint.loads()) {
+      if (!load.equals(checkpointKey) && load.startsWith(tableName + " (")) {
+        throw new IllegalStateException(
+            String.format(
+                "Checkpoint has ranges of %s, not %s; load from scratch instead of resuming",
+                load, checkpointKey));
+      }
     }
 
-    CassandraConnection.closeSession();
+    long skipped = 0;
+    long[] current = null;
+    int chunksInCurrent = 0;
+    for (long start = 0; start < numberOfRows; start += batchSize) {
+      long end = Math.min(start + batchSize, numberOfRows);
+      if (loadCheckpoint.isComplete(checkpointKey, start, end)) {
+        skipped++;
+        current = null;
+      } else if (current == null || chunksInCurrent == CHECKPOINT_CHUNKS) {
+        current = new long[] {start, end};
+        chunksInCurrent = 1;
+        ranges.add(current);
+      } else {
+        current[1] = end;
+        chunksInCurrent++;
+      }
+    }
+    if (skipped > 0) {
+      LOGGER.info(
+          String.format("%s: %s chunks already loaded, skipping them", checkpointKey, skipped));
+    }
+    return ranges;
   }
 }
@@ -1,6 +1,7 @@
 package connection;
 
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
 import org.apache.log4j.Logger;
 
 public class DatabaseCreator {
@@ -15,6 +16,13 @@ public class DatabaseCreator {
   private static final String TABLE_NAME_USERS = "sntask5.users";
   private static final String TABLE_NAME_FRIENDSHIPS = "sntask5.friendships";
   private static final String TABLE_NAME_MESSAGES = "sntask5.messages";
+  private static final String TABLE_NAME_MESSAGES_BY_DAY = "sntask5.messages_by_day";
+  public static final String TABLE_NAME_MESSAGES_BY_USER = "sntask5.messages_by_user";
+  public static final String TABLE_NAME_FRIENDS_BY_USER = "sntask5.friends_by_user";
+  public static final String TABLE_NAME_FRIENDSHIPS_BY_MONTH = "sntask5.friendships_by_month";
+  public static final String TABLE_NAME_FRIEND_COUNTS = "sntask5.friend_counts";
+  public static final String TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH =
+      "sntask5.friendship_max_by_month";
   public static final String TABLE_CREATED = "Table created - ";
   public static final String CREATE_TABLE_IF_NOT_EXISTS = "CREATE TABLE IF NOT EXISTS ";
   public static final String CREATE_ID_CQL = "id bigint PRIMARY KEY, ";
@@ -24,12 +32,23 @@ public class DatabaseCreator {
 
   public static void createKeyspaceWithTables(){
     dropKeyspace(KEYSPACE_NAME);
+    createMissingKeyspaceAndTables();
+  }
+
+  /** Creates the keyspace and the tables that do not exist yet, keeping any existing data. */
+  public static void createMissingKeyspaceAndTables() {
     createKeyspace(KEYSPACE_NAME, REPLICATION_STRATEGY, REPLICATION_FACTOR);
     createTableMovies();
     createTableAudioTracks();
     createTableUsers();
     createTableFriendships();
     createTableMessages();
+    createTableMessagesByDay();
+    createTableMessagesByUser();
+    createTableFriendsByUser();
+    createTableFriendshipsByMonth();
+    createTableFriendCounts();
+    createTableFriendshipMaxByMonth();
   }
 
   public static void createKeyspace(
@@ -47,7 +66,6 @@ public class DatabaseCreator {
 
     String query = sb.toString();
     session.execute(query);
-    CassandraConnection.closeSession();
     LOGGER.info("Keyspace created - " + keyspaceName);
   }
 
@@ -58,12 +76,16 @@ public class DatabaseCreator {
 
     String query = sb.toString();
     session.execute(query);
-    CassandraConnection.closeSession();
     LOGGER.info("Keyspace dropped - " + keyspaceName);
   }
 
   public static void createTableMovies() {
     Session session = CassandraConnection.getSession();
+    session.execute(moviesTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_MOVIES);
+  }
+
+  public static String moviesTableCql() {
     StringBuilder sb =
         new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
             .append(TABLE_NAME_MOVIES)
@@ -72,15 +94,16 @@ public class DatabaseCreator {
             .append("title text,")
             .append("country text,")
             .append("year date);");
-
-    String query = sb.toString();
-    session.execute(query);
-    CassandraConnection.closeSession();
-    LOGGER.info(TABLE_CREATED + TABLE_NAME_MOVIES);
+    return sb.toString();
   }
 
   public static void createTableAudioTracks() {
     Session session = CassandraConnection.getSession();
+    session.execute(audioTracksTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_AUDIO_TRACKS);
+  }
+
+  public static String audioTracksTableCql() {
     StringBuilder sb =
         new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
             .append(TABLE_NAME_AUDIO_TRACKS)
@@ -90,14 +113,24 @@ public class DatabaseCreator {
             .append("author text,")
             .append("album text,")
             .append("year date);");
-    String query = sb.toString();
-    session.execute(query);
-    CassandraConnection.closeSession();
-    LOGGER.info(TABLE_CREATED + TABLE_NAME_AUDIO_TRACKS);
+    return sb.toString();
   }
 
+  /** Also adds {@code movie_count} to a users table created before the column existed. */
   public static void createTableUsers() {
     Session session = CassandraConnection.getSession();
+    session.execute(usersTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_USERS);
+
+    TableMetadata users =
+        session.getCluster().getMetadata().getKeyspace(KEYSPACE_NAME).getTable("users");
+    if (users.getColumn("movie_count") == null) {
+      session.execute("ALTER TABLE " + TABLE_NAME_USERS + " ADD movie_count int;");
+      LOGGER.info("Column added - " + TABLE_NAME_USERS + ".movie_count");
+    }
+  }
+
+  public static String usersTableCql() {
     StringBuilder sb =
         new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
             .append(TABLE_NAME_USERS)
@@ -107,16 +140,18 @@ public class DatabaseCreator {
             .append("surname text,")
             .append("birthdate date,")
             .append("movies list<bigint>,")
+            .append("movie_count int,")
             .append("audioTracks list<bigint>);");
-    String query = sb.toString();
-    session.execute(query);
-    CassandraConnection.closeSession();
-
-    LOGGER.info(TABLE_CREATED + TABLE_NAME_USERS);
+    return sb.toString();
   }
 
   public static void createTableFriendships() {
     Session session = CassandraConnection.getSession();
+    session.execute(friendshipsTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_FRIENDSHIPS);
+  }
+
+  public static String friendshipsTableCql() {
     StringBuilder sb =
         new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
             .append(TABLE_NAME_FRIENDSHIPS)
@@ -124,14 +159,16 @@ public class DatabaseCreator {
             .append("userid bigint PRIMARY KEY,")
             .append("friendsIds list<bigint>,")
             .append("date date);");
-    String query = sb.toString();
-    session.execute(query);
-    CassandraConnection.closeSession();
-    LOGGER.info(TABLE_CREATED + TABLE_NAME_FRIENDSHIPS);
+    return sb.toString();
   }
 
   public static void createTableMessages() {
     Session session = CassandraConnection.getSession();
+    session.execute(messagesTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_MESSAGES);
+  }
+
+  public static String messagesTableCql() {
     StringBuilder sb =
         new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
             .append(TABLE_NAME_MESSAGES)
@@ -141,9 +178,106 @@ public class DatabaseCreator {
             .append("recipientId bigint,")
             .append("text text,")
             .append("date date);");
+    return sb.toString();
+  }
+
+  public static void createTableMessagesByDay() {
+    Session session = CassandraConnection.getSession();
+    StringBuilder sb =
+        new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
+            .append(TABLE_NAME_MESSAGES_BY_DAY)
+            .append("(")
+            .append("date date PRIMARY KEY,")
+            .append("messages counter);");
     String query = sb.toString();
     session.execute(query);
-    CassandraConnection.closeSession();
-    LOGGER.info(TABLE_CREATED + TABLE_NAME_MESSAGES);
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_MESSAGES_BY_DAY);
+  }
+
+  /** Inbox: one partition per recipient and {@link Months} month, newest message first. */
+  public static void createTableMessagesByUser() {
+    Session session = CassandraConnection.getSession();
+    session.execute(messagesByUserTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_MESSAGES_BY_USER);
+  }
+
+  public static String messagesByUserTableCql() {
+    StringBuilder sb =
+        new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
+            .append(TABLE_NAME_MESSAGES_BY_USER)
+            .append("(")
+            .append("userid bigint,")
+            .append("month int,")
+            .append("sent timestamp,")
+            .append("messageid bigint,")
+            .append("senderid bigint,")
+            .append("text text,")
+            .append("PRIMARY KEY ((userid, month), sent, messageid))")
+            .append(" WITH CLUSTERING ORDER BY (sent DESC, messageid DESC);");
+    return sb.toString();
+  }
+
+  /** One row per friendship edge, so adding a friend writes a single cell. */
+  public static void createTableFriendsByUser() {
+    Session session = CassandraConnection.getSession();
+    session.execute(friendsByUserTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_FRIENDS_BY_USER);
+  }
+
+  public static String friendsByUserTableCql() {
+    StringBuilder sb =
+        new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
+            .append(TABLE_NAME_FRIENDS_BY_USER)
+            .append("(")
+            .append("userid bigint,")
+            .append("friendid bigint,")
+            .append("since date,")
+            .append("PRIMARY KEY (userid, friendid));");
+    return sb.toString();
+  }
+
+  public static void createTableFriendshipsByMonth() {
+    Session session = CassandraConnection.getSession();
+    StringBuilder sb =
+        new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
+            .append(TABLE_NAME_FRIENDSHIPS_BY_MONTH)
+            .append("(")
+            .append("month int PRIMARY KEY,")
+            .append("friendships counter);");
+    String query = sb.toString();
+    session.execute(query);
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_FRIENDSHIPS_BY_MONTH);
+  }
+
+  public static void createTableFriendCounts() {
+    Session session = CassandraConnection.getSession();
+    StringBuilder sb =
+        new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
+            .append(TABLE_NAME_FRIEND_COUNTS)
+            .append("(")
+            .append("userid bigint PRIMARY KEY,")
+            .append("friends counter);");
+    String query = sb.toString();
+    session.execute(query);
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_FRIEND_COUNTS);
+  }
+
+  /** Friendship row sizes seen per month, largest first, so the first row is the month's max. */
+  public static void createTableFriendshipMaxByMonth() {
+    Session session = CassandraConnection.getSession();
+    session.execute(friendshipMaxByMonthTableCql());
+    LOGGER.info(TABLE_CREATED + TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH);
+  }
+
+  public static String friendshipMaxByMonthTableCql() {
+    StringBuilder sb =
+        new StringBuilder(CREATE_TABLE_IF_NOT_EXISTS)
+            .append(TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH)
+            .append("(")
+            .append("month int,")
+            .append("friends int,")
+            .append("PRIMARY KEY (month, friends))")
+            .append(" WITH CLUSTERING ORDER BY (friends DESC);");
+    return sb.toString();
   }
 }
@@ -0,0 +1,62 @@
+package connection;
+
+import model.LongIdList;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws sets of distinct ids in time linear in the sample size, however close it gets to the size
+ * of the range. Uniform samples use Floyd's algorithm; skewed ones draw from the distribution and
+ * resolve a repeat by taking the next unused id above it, found through {@link NextFreeIds} in
+ * amortised near-constant time even when the hot ids form one long taken run.
+ */
+public class DistinctSampler {
+
+  private DistinctSampler() {}
+
+  /** {@code amount} distinct ids from {@code distribution}, sorted ascending. */
+  public static LongIdList sample(
+      SplittableRandom random, int amount, LongDistribution distribution) {
+
+    long min = distribution.getMin();
+    long range = distribution.getMax() - min;
+    int size = (int) Math.min(amount, range);
+    if (size <= 0) {
+      return LongIdList.empty();
+    }
+
+    long[] ids =
+        distribution instanceof LongDistribution.Uniform
+            ? floyd(random, size, min, range)
+            : probing(random, size, distribution, min, range);
+    Arrays.sort(ids);
+    return LongIdList.wrap(ids);
+  }
+
+  /** For each j in {@code [range - size, range)}: pick t in [0, j], keep t, or j if t is taken. */
+  private static long[] floyd(SplittableRandom random, int size, long min, long range) {
+    LongHashSet seen = new LongHashSet(size);
+    long[] ids = new long[size];
+    int n = 0;
+    for (long j = range - size; j < range; j++) {
+      long t = random.nextLong(j + 1);
+      if (!seen.add(t)) {
+        seen.add(j);
+        t = j;
+      }
+      ids[n++] = min + t;
+    }
+    return ids;
+  }
+
+  private static long[] probing(
+      SplittableRandom random, int size, LongDistribution distribution, long min, long range) {
+    NextFreeIds taken = new NextFreeIds(range, size);
+    long[] ids = new long[size];
+    for (int n = 0; n < size; n++) {
+      ids[n] = min + taken.take(distribution.sample(random) - min);
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,72 @@
+package connection;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import model.Friendship;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the friendship report tables in step with inserted friendships, with the counts
+ * aggregated on the client first:
+ *
+ * <ul>
+ *   <li>{@code friendships_by_month}: new friendships per {@link Months} month;
+ *   <li>{@code friend_counts}: friends per user;
+ *   <li>{@code friendship_max_by_month}: the largest friendship row of each month, one row per
+ *       distinct size, read back with {@code PER PARTITION LIMIT 1}.
+ * </ul>
+ */
+public class FriendshipCounters implements LoadListener<Friendship> {
+
+  private static final String UPDATE_FRIENDSHIPS_BY_MONTH_CQL =
+      "update sntask5.friendships_by_month set friendships = friendships + ? where month = ?";
+  private static final String UPDATE_FRIEND_COUNTS_CQL =
+      "update sntask5.friend_counts set friends = friends + ? where userid = ?";
+  private static final String INSERT_FRIENDSHIP_MAX_CQL =
+      "insert into sntask5.friendship_max_by_month (month, friends) values (?, ?)";
+
+  private static final int MAX_PENDING_MONTHS = 1_000;
+  private static final int MAX_PENDING_USERS = 50_000;
+
+  private final Map<Integer, Integer> maxByMonth = new ConcurrentHashMap<>();
+  private CounterBuffer<Integer> friendshipsByMonth;
+  private CounterBuffer<Long> friendCounts;
+  private PreparedStatement insertMax;
+  private AsyncWriter writer;
+
+  @Override
+  public void onStart(Session session, AsyncWriter writer) {
+    this.writer = writer;
+    this.friendshipsByMonth =
+        new CounterBuffer<>(session.prepare(UPDATE_FRIENDSHIPS_BY_MONTH_CQL), MAX_PENDING_MONTHS);
+    this.friendCounts =
+        new CounterBuffer<>(session.prepare(UPDATE_FRIEND_COUNTS_CQL), MAX_PENDING_USERS);
+    this.insertMax = session.prepare(INSERT_FRIENDSHIP_MAX_CQL).setIdempotent(true);
+  }
+
+  @Override
+  public void onRow(Friendship friendship) {
+    int month = Months.month(friendship.getDate().getTime());
+    int friends = friendship.getFriendsIds().size();
+
+    friendshipsByMonth.add(month, friends, writer);
+    friendCounts.add(friendship.getUserId(), friends, writer);
+    maxByMonth.merge(month, friends, Math::max);
+  }
+
+  /** Monthly maxima are plain inserts, so writing one again with a later, larger value is safe. */
+  @Override
+  public void flush(AsyncWriter writer) {
+    friendshipsByMonth.flush(writer);
+    friendCounts.flush(writer);
+    maxByMonth.forEach((month, friends) -> writer.write(insertMax.bind(month, friends)));
+    maxByMonth.clear();
+  }
+
+  @Override
+  public void onFinish(Session session, AsyncWriter writer) {
+    flush(writer);
+  }
+}
@@ -0,0 +1,101 @@
+package connection;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Id ranges whose rows are known to be written, per load, kept in a local file with one {@code
+ * load<TAB>startId<TAB>endId} line per range. Each range is appended and synced as soon as it
+ * completes, so after a crash a restarted load can skip everything the file lists.
+ */
+public class LoadCheckpoint {
+
+  private static final Logger LOGGER = Logger.getLogger(LoadCheckpoint.class);
+
+  public static final Path DEFAULT_FILE = Paths.get("load.checkpoint");
+
+  private static final String SEPARATOR = "\t";
+
+  private final Path file;
+  private final Map<String, List<long[]>> completed = new HashMap<>();
+
+  private LoadCheckpoint(Path file) {
+    this.file = file;
+  }
+
+  /** Reads the ranges recorded in {@code file}, if it exists. */
+  public static LoadCheckpoint open(Path file) {
+    LoadCheckpoint checkpoint = new LoadCheckpoint(file);
+    if (Files.exists(file)) {
+      try {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+          String[] fields = line.split(SEPARATOR);
+          if (fields.length == 3) {
+            checkpoint.remember(
+                fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read load checkpoint " + file, e);
+      }
+      LOGGER.info("Resuming from load checkpoint " + file.toAbsolutePath());
+    }
+    return checkpoint;
+  }
+
+  /** Deletes {@code file} and starts from an empty checkpoint. */
+  public static LoadCheckpoint fresh(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot delete load checkpoint " + file, e);
+    }
+    return new LoadCheckpoint(file);
+  }
+
+  /** The loads this checkpoint has ranges for. */
+  public synchronized Set<String> loads() {
+    return new HashSet<>(completed.keySet());
+  }
+
+  public synchronized boolean isComplete(String load, long startId, long endId) {
+    for (long[] range : completed.getOrDefault(load, new ArrayList<>())) {
+      if (range[0] <= startId && endId <= range[1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public synchronized void markComplete(String load, long startId, long endId) {
+    String line = load + SEPARATOR + startId + SEPARATOR + endId + System.lineSeparator();
+    try {
+      Files.write(
+          file,
+          line.getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND,
+          StandardOpenOption.DSYNC);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write load checkpoint " + file, e);
+    }
+    remember(load, startId, endId);
+  }
+
+  private void remember(String load, long startId, long endId) {
+    completed.computeIfAbsent(load, key -> new ArrayList<>()).add(new long[] {startId, endId});
+  }
+}
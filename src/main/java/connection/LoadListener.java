@@ -0,0 +1,22 @@
+package connection;
+
+import com.datastax.driver.core.Session;
+
+/** Callbacks a table load runs alongside its inserts, e.g. to keep derived tables up to date. */
+public interface LoadListener<T> {
+
+  /** Called once before the first row, with the writer the load's inserts go through. */
+  default void onStart(Session session, AsyncWriter writer) {}
+
+  /** Called from the writer threads for every row handed to the batcher. */
+  void onRow(T row);
+
+  /**
+   * Called before a range of the load is checkpointed, after all of its rows were passed to {@link
+   * #onRow}: hands everything derived from them to {@code writer}, so the checkpoint covers it.
+   */
+  default void flush(AsyncWriter writer) {}
+
+  /** Called once after every row of the load has been handed to the writer. */
+  void onFinish(Session session, AsyncWriter writer);
+}
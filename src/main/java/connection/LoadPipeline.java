@@ -0,0 +1,160 @@
+package connection;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Overlaps row generation with writing: generator threads push rows into a bounded queue and
+ * writer threads drain it, so at most {@code queueCapacity} generated rows are held in memory.
+ */
+public class LoadPipeline<T> {
+
+  private static final Logger LOGGER = Logger.getLogger(LoadPipeline.class);
+  private static final Object END_OF_STREAM = new Object();
+
+  private final String name;
+  private final int generatorThreads;
+  private final int writerThreads;
+  private final int queueCapacity;
+
+  public LoadPipeline(String name, int generatorThreads, int writerThreads, int queueCapacity) {
+    if (generatorThreads < 1 || writerThreads < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("Pipeline threads and queue capacity must be positive");
+    }
+    this.name = name;
+    this.generatorThreads = generatorThreads;
+    this.writerThreads = writerThreads;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /** Produces the rows with ids in {@code [startId, endId)} and hands each one to the sink. */
+  @FunctionalInterface
+  public interface RangeGenerator<T> {
+    void generate(long startId, long endId, Consumer<T> sink);
+  }
+
+  /**
+   * Generates {@code [startId, endId)} in chunks of {@code chunkSize} ids and passes every row to
+   * {@code writer}. Returns the number of rows written.
+   */
+  public long run(
+      long startId, long endId, long chunkSize, RangeGenerator<T> generator, Consumer<T> writer) {
+
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+    ExecutorService generators = Executors.newFixedThreadPool(generatorThreads);
+    ExecutorService writers = Executors.newFixedThreadPool(writerThreads);
+    AtomicLong rows = new AtomicLong();
+    AtomicReference<RuntimeException> writeFailure = new AtomicReference<>();
+
+    long numberOfChunks = (endId - startId + chunkSize - 1) / chunkSize;
+    AtomicLong generatedChunks = new AtomicLong();
+
+    try {
+      List<Future<?>> writerTasks = new ArrayList<>();
+      for (int i = 0; i < writerThreads; i++) {
+        writerTasks.add(writers.submit(() -> drain(queue, writer, rows, writeFailure)));
+      }
+
+      List<Future<?>> generatorTasks = new ArrayList<>();
+      for (long chunkStart = startId; chunkStart < endId; chunkStart += chunkSize) {
+        long from = chunkStart;
+        long to = Math.min(chunkStart + chunkSize, endId);
+        generatorTasks.add(
+            generators.submit(
+                () -> {
+                  generator.generate(
+                      from,
+                      to,
+                      row -> {
+                        if (writeFailure.get() != null) {
+                          throw new IllegalStateException(name + ": generation aborted");
+                        }
+                        put(queue, row);
+                      });
+                  LOGGER.info(
+                      String.format(
+                          "%s: chunk %s/%s generated",
+                          name, generatedChunks.incrementAndGet(), numberOfChunks));
+                }));
+      }
+
+      try {
+        awaitAll(generatorTasks);
+      } finally {
+        for (int i = 0; i < writerThreads; i++) {
+          put(queue, END_OF_STREAM);
+        }
+        awaitAll(writerTasks);
+      }
+    } finally {
+      generators.shutdownNow();
+      writers.shutdownNow();
+    }
+
+    return rows.get();
+  }
+
+  /**
+   * Writes queued rows until the end-of-stream marker. After a failed write the remaining rows
+   * are discarded, so generators blocked on a full queue can still finish.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> void drain(
+      BlockingQueue<Object> queue,
+      Consumer<T> writer,
+      AtomicLong rows,
+      AtomicReference<RuntimeException> writeFailure) {
+    try {
+      for (Object row = queue.take(); row != END_OF_STREAM; row = queue.take()) {
+        if (writeFailure.get() != null) {
+          continue;
+        }
+        try {
+          writer.accept((T) row);
+          rows.incrementAndGet();
+        } catch (RuntimeException e) {
+          writeFailure.compareAndSet(null, e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    RuntimeException failure = writeFailure.get();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static void put(BlockingQueue<Object> queue, Object row) {
+    try {
+      queue.put(row);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while queueing generated rows", e);
+    }
+  }
+
+  private static void awaitAll(List<Future<?>> tasks) {
+    for (Future<?> task : tasks) {
+      try {
+        task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while loading", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Load pipeline failed", e.getCause());
+      }
+    }
+  }
+}
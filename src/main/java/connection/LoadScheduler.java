@@ -0,0 +1,162 @@
+package connection;
+
+import com.datastax.driver.core.Session;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Loads independent tables at the same time on one shared session. All tables draw from one fair
+ * budget of in-flight requests, so a fast table cannot starve the others.
+ */
+public class LoadScheduler {
+
+  private static final Logger LOGGER = Logger.getLogger(LoadScheduler.class);
+  private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+  private final Session session;
+  private final Semaphore inFlightBudget;
+  private final List<TableLoad> tables = new ArrayList<>();
+  private final List<Consumer<TableLoad>> tasks = new ArrayList<>();
+
+  public LoadScheduler(Session session, int maxInFlight) {
+    this.session = session;
+    this.inFlightBudget = new Semaphore(maxInFlight, true);
+  }
+
+  public LoadScheduler submit(String tableName, Consumer<TableLoad> task) {
+    tables.add(new TableLoad(tableName, session, inFlightBudget));
+    tasks.add(task);
+    return this;
+  }
+
+  /**
+   * Runs every submitted table load and blocks until all of them have finished. If any load failed,
+   * throws once all have finished, with each failure attached as a suppressed exception.
+   */
+  public void run() {
+    ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+    progress.scheduleAtFixedRate(
+        this::logProgress,
+        PROGRESS_INTERVAL_SECONDS,
+        PROGRESS_INTERVAL_SECONDS,
+        TimeUnit.SECONDS);
+
+    long start = System.nanoTime();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      TableLoad table = tables.get(i);
+      Consumer<TableLoad> task = tasks.get(i);
+      futures.add(
+          executor.submit(
+              () -> {
+                table.start();
+                try {
+                  task.accept(table);
+                } finally {
+                  table.finish();
+                }
+              }));
+    }
+
+    IllegalStateException failure = null;
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Loading of " + tables.get(i).getName() + " failed", e.getCause());
+          if (failure == null) {
+            failure = new IllegalStateException("Loading of some tables failed");
+          }
+          failure.addSuppressed(e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure = new IllegalStateException("Interrupted while loading tables", e);
+    } finally {
+      progress.shutdownNow();
+      executor.shutdownNow();
+    }
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    tables.forEach(table -> LOGGER.info(table.describe()));
+    if (failure != null) {
+      throw failure;
+    }
+    LOGGER.info(String.format("All tables loaded in %.1f s", seconds));
+  }
+
+  private void logProgress() {
+    tables.forEach(table -> LOGGER.info(table.describe()));
+  }
+
+  /** Per-table handle passed to a load task: the shared session and budget, plus progress. */
+  public static class TableLoad {
+
+    private final String name;
+    private final Session session;
+    private final Semaphore inFlightBudget;
+    private final LongAdder rows = new LongAdder();
+    private volatile long startNanos;
+    private volatile long finishNanos;
+
+    TableLoad(String name, Session session, Semaphore inFlightBudget) {
+      this.name = name;
+      this.session = session;
+      this.inFlightBudget = inFlightBudget;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Session getSession() {
+      return session;
+    }
+
+    public Semaphore getInFlightBudget() {
+      return inFlightBudget;
+    }
+
+    public void recordRow() {
+      rows.increment();
+    }
+
+    public long getRows() {
+      return rows.sum();
+    }
+
+    void start() {
+      startNanos = System.nanoTime();
+    }
+
+    void finish() {
+      finishNanos = System.nanoTime();
+    }
+
+    String describe() {
+      if (startNanos == 0) {
+        return String.format("%s: waiting", name);
+      }
+      long end = finishNanos == 0 ? System.nanoTime() : finishNanos;
+      double seconds = Math.max(end - startNanos, 1) / 1e9;
+      long loaded = getRows();
+      return String.format(
+          "%s: %s rows in %.1f s (%.0f rows/s)%s",
+          name, loaded, seconds, loaded / seconds, finishNanos == 0 ? "" : ", done");
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package connection;
+
+import java.util.SplittableRandom;
+
+/** A distribution of longs over {@code [min, max)}, sampled from a caller-supplied generator. */
+public interface LongDistribution {
+
+  long getMin();
+
+  /** Exclusive upper bound. */
+  long getMax();
+
+  long sample(SplittableRandom random);
+
+  static LongDistribution uniform(long min, long max) {
+    return new Uniform(min, max);
+  }
+
+  /**
+   * Zipf over ranks: {@code min} is the most frequent value, {@code min + 1} the next, and so on,
+   * with frequency proportional to {@code 1 / rank^exponent}.
+   */
+  static LongDistribution zipf(long min, long max, double exponent) {
+    return new Zipf(min, max, exponent);
+  }
+
+  /**
+   * Truncated power law (discrete Pareto) with density proportional to {@code x^-exponent},
+   * suited to degree-like quantities such as the number of friends per user.
+   */
+  static LongDistribution powerLaw(long min, long max, double exponent) {
+    return new PowerLaw(min, max, exponent);
+  }
+
+  abstract class Bounded implements LongDistribution {
+
+    final long min;
+    final long max;
+
+    Bounded(long min, long max) {
+      if (max <= min) {
+        throw new IllegalArgumentException(String.format("Empty range [%s, %s)", min, max));
+      }
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public long getMin() {
+      return min;
+    }
+
+    @Override
+    public long getMax() {
+      return max;
+    }
+  }
+
+  final class Uniform extends Bounded {
+
+    Uniform(long min, long max) {
+      super(min, max);
+    }
+
+    @Override
+    public long sample(SplittableRandom random) {
+      return random.nextLong(min, max);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("uniform[%s, %s)", min, max);
+    }
+  }
+
+  /** Rejection-inversion sampling (Hoermann and Derflinger): constant expected time per draw. */
+  final class Zipf extends Bounded {
+
+    private final double exponent;
+    private final long size;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    Zipf(long min, long max, double exponent) {
+      super(min, max);
+      if (!(exponent > 0)) {
+        throw new IllegalArgumentException("Zipf exponent must be positive: " + exponent);
+      }
+      this.exponent = exponent;
+      this.size = max - min;
+      this.hIntegralX1 = hIntegral(1.5) - 1;
+      this.hIntegralN = hIntegral(size + 0.5);
+      this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    @Override
+    public long sample(SplittableRandom random) {
+      while (true) {
+        double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+        double x = hIntegralInverse(u);
+        long rank = Math.min(Math.max((long) (x + 0.5), 1), size);
+        if (rank - x <= s || u >= hIntegral(rank + 0.5) - h(rank)) {
+          return min + rank - 1;
+        }
+      }
+    }
+
+    private double h(double x) {
+      return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+      double logX = Math.log(x);
+      return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+      double t = Math.max(x * (1 - exponent), -1);
+      return Math.exp(log1pOverX(t) * x);
+    }
+
+    private static double expm1OverX(double x) {
+      return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+
+    private static double log1pOverX(double x) {
+      return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    @Override
+    public String toString() {
+      return String.format("zipf[%s, %s) s=%s", min, max, exponent);
+    }
+  }
+
+  /** Inverse-CDF sampling of a continuous Pareto on {@code [min + 1, max + 1)}, floored. */
+  final class PowerLaw extends Bounded {
+
+    private final double exponent;
+    private final double lowerTerm;
+    private final double span;
+
+    PowerLaw(long min, long max, double exponent) {
+      super(min, max);
+      if (!(exponent > 0) || min < 0) {
+        throw new IllegalArgumentException(
+            String.format("Power law needs exponent > 0 and min >= 0: %s, %s", exponent, min));
+      }
+      this.exponent = exponent;
+      this.lowerTerm = term(min + 1);
+      this.span = term(max + 1) - lowerTerm;
+    }
+
+    @Override
+    public long sample(SplittableRandom random) {
+      double u = lowerTerm + random.nextDouble() * span;
+      double x = exponent == 1 ? Math.exp(u) : Math.pow(u, 1 / (1 - exponent));
+      return Math.min(Math.max((long) x - 1, min), max - 1);
+    }
+
+    private double term(double x) {
+      return exponent == 1 ? Math.log(x) : Math.pow(x, 1 - exponent);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("powerLaw[%s, %s) a=%s", min, max, exponent);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package connection;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive longs with linear probing. {@link Long#MIN_VALUE} is reserved as
+ * the empty marker.
+ */
+final class LongHashSet {
+
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private long[] table;
+  private int mask;
+  private int size;
+
+  LongHashSet(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+    table = new long[capacity];
+    Arrays.fill(table, EMPTY);
+    mask = capacity - 1;
+  }
+
+  /** Returns {@code false} if the value was already present. */
+  boolean add(long value) {
+    if (value == EMPTY) {
+      throw new IllegalArgumentException("Reserved value: " + value);
+    }
+    int slot = slot(value);
+    while (table[slot] != EMPTY) {
+      if (table[slot] == value) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = value;
+    if (++size * 2 > table.length) {
+      rehash();
+    }
+    return true;
+  }
+
+  boolean contains(long value) {
+    int slot = slot(value);
+    while (table[slot] != EMPTY) {
+      if (table[slot] == value) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int slot(long value) {
+    long hash = value * 0x9e3779b97f4a7c15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private void rehash() {
+    long[] old = table;
+    table = new long[old.length * 2];
+    Arrays.fill(table, EMPTY);
+    mask = table.length - 1;
+    for (long value : old) {
+      if (value != EMPTY) {
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+      }
+    }
+  }
+}
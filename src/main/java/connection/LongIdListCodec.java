@@ -0,0 +1,116 @@
+package connection;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import model.LongIdList;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Maps {@code list<bigint>} columns to {@link LongIdList}, reading and writing the elements as
+ * primitive longs instead of going through {@code List<Long>}.
+ */
+public class LongIdListCodec extends TypeCodec<LongIdList> {
+
+  public static final LongIdListCodec INSTANCE = new LongIdListCodec();
+
+  private static final int BIGINT_SIZE = 8;
+
+  private LongIdListCodec() {
+    super(DataType.list(DataType.bigint()), LongIdList.class);
+  }
+
+  @Override
+  public ByteBuffer serialize(LongIdList value, ProtocolVersion protocolVersion) {
+    if (value == null) {
+      return null;
+    }
+    boolean shortSizes = protocolVersion.compareTo(ProtocolVersion.V3) < 0;
+    int sizeLength = shortSizes ? 2 : 4;
+    int size = value.size();
+
+    ByteBuffer buffer = ByteBuffer.allocate(sizeLength + size * (sizeLength + BIGINT_SIZE));
+    writeSize(buffer, size, shortSizes);
+    for (int i = 0; i < size; i++) {
+      writeSize(buffer, BIGINT_SIZE, shortSizes);
+      buffer.putLong(value.get(i));
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public LongIdList deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
+    if (bytes == null || bytes.remaining() == 0) {
+      return LongIdList.empty();
+    }
+    boolean shortSizes = protocolVersion.compareTo(ProtocolVersion.V3) < 0;
+    ByteBuffer input = bytes.duplicate();
+
+    int size = readSize(input, shortSizes);
+    long[] ids = new long[size];
+    for (int i = 0; i < size; i++) {
+      int elementSize = readSize(input, shortSizes);
+      if (elementSize != BIGINT_SIZE) {
+        throw new InvalidTypeException(
+            "Invalid bigint element size in list<bigint>: " + elementSize);
+      }
+      ids[i] = input.getLong();
+    }
+    return LongIdList.wrap(ids);
+  }
+
+  @Override
+  public LongIdList parse(String value) {
+    if (value == null || value.isEmpty() || value.equalsIgnoreCase("NULL")) {
+      return null;
+    }
+    String trimmed = value.trim();
+    if (!trimmed.startsWith("[") || !trimmed.endsWith("]")) {
+      throw new InvalidTypeException("Cannot parse list<bigint> value from \"" + value + "\"");
+    }
+    String body = trimmed.substring(1, trimmed.length() - 1).trim();
+    if (body.isEmpty()) {
+      return LongIdList.empty();
+    }
+    String[] elements = body.split(",");
+    long[] ids = new long[elements.length];
+    try {
+      for (int i = 0; i < elements.length; i++) {
+        ids[i] = Long.parseLong(elements[i].trim());
+      }
+    } catch (NumberFormatException e) {
+      throw new InvalidTypeException("Cannot parse list<bigint> value from \"" + value + "\"", e);
+    }
+    return LongIdList.wrap(ids);
+  }
+
+  @Override
+  public String format(LongIdList value) {
+    if (value == null) {
+      return "NULL";
+    }
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < value.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(value.get(i));
+    }
+    return sb.append(']').toString();
+  }
+
+  private static void writeSize(ByteBuffer buffer, int size, boolean shortSizes) {
+    if (shortSizes) {
+      buffer.putShort((short) size);
+    } else {
+      buffer.putInt(size);
+    }
+  }
+
+  private static int readSize(ByteBuffer buffer, boolean shortSizes) {
+    return shortSizes ? buffer.getShort() & 0xFFFF : buffer.getInt();
+  }
+}
@@ -0,0 +1,42 @@
+package connection;
+
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.Session;
+import model.Message;
+
+/**
+ * Keeps the {@code messages_by_day} counter table in step with inserted messages. Counts are
+ * aggregated on the client and written as one counter update per day.
+ */
+public class MessagesByDayCounter implements LoadListener<Message> {
+
+  private static final String UPDATE_MESSAGES_BY_DAY_CQL =
+      "update sntask5.messages_by_day set messages = messages + ? where date = ?";
+  private static final int MAX_PENDING_DAYS = 10_000;
+
+  private CounterBuffer<LocalDate> messagesByDay;
+  private AsyncWriter writer;
+
+  @Override
+  public void onStart(Session session, AsyncWriter writer) {
+    this.writer = writer;
+    this.messagesByDay =
+        new CounterBuffer<>(session.prepare(UPDATE_MESSAGES_BY_DAY_CQL), MAX_PENDING_DAYS);
+  }
+
+  @Override
+  public void onRow(Message message) {
+    LocalDate date = LocalDate.fromMillisSinceEpoch(message.getDate().getTime());
+    messagesByDay.add(date, 1, writer);
+  }
+
+  @Override
+  public void flush(AsyncWriter writer) {
+    messagesByDay.flush(writer);
+  }
+
+  @Override
+  public void onFinish(Session session, AsyncWriter writer) {
+    flush(writer);
+  }
+}
@@ -0,0 +1,21 @@
+package connection;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/** Calendar months (UTC) as {@code yyyymm} ints, e.g. {@code 202003}, the month key of tables. */
+public class Months {
+
+  private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+  private Months() {}
+
+  public static int month(long epochMillis) {
+    LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochMillis, MILLIS_PER_DAY));
+    return date.getYear() * 100 + date.getMonthValue();
+  }
+
+  public static int previousMonth(int month) {
+    return month % 100 == 1 ? month - 100 + 11 : month - 1;
+  }
+}
@@ -0,0 +1,55 @@
+package connection;
+
+import java.util.Arrays;
+
+/**
+ * Taken offsets in {@code [0, range)}, each pointing towards the next offset that may still be
+ * free, wrapping at {@code range}. {@link #take} follows the pointers and compresses the path it
+ * walked, as in a union-find, so a run of taken offsets is crossed in amortised near-constant time
+ * instead of one step per offset. Holds at most {@code maxTaken} offsets.
+ */
+final class NextFreeIds {
+
+  private static final long EMPTY = -1;
+
+  private final long range;
+  private final long[] keys;
+  private final long[] next;
+  private final int mask;
+
+  NextFreeIds(long range, int maxTaken) {
+    this.range = range;
+    int capacity = Integer.highestOneBit(Math.max(maxTaken, 4) * 2 - 1) << 1;
+    keys = new long[capacity];
+    next = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    mask = capacity - 1;
+  }
+
+  /** Takes the first free offset at or after {@code offset}, wrapping, and returns it. */
+  long take(long offset) {
+    long free = offset;
+    for (int slot = find(free); keys[slot] != EMPTY; slot = find(free)) {
+      free = next[slot];
+    }
+    for (long walk = offset; walk != free; ) {
+      int slot = find(walk);
+      walk = next[slot];
+      next[slot] = free;
+    }
+    int slot = find(free);
+    keys[slot] = free;
+    next[slot] = free + 1 == range ? 0 : free + 1;
+    return free;
+  }
+
+  /** The slot holding {@code offset}, or the empty slot where it would go. */
+  private int find(long offset) {
+    long hash = offset * 0x9e3779b97f4a7c15L;
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != offset) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,141 @@
+package connection;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups statements into small UNLOGGED batches whose partitions are owned by the same replicas,
+ * so each batch is applied by one replica set instead of being fanned out by the coordinator.
+ * Batches are sent through an {@link AsyncWriter} once they reach {@code maxStatements} or {@code
+ * maxBytes}.
+ */
+public class TokenAwareBatcher implements AutoCloseable {
+
+  /** Stays under the server's default batch_size_warn_threshold of 5 KiB. */
+  public static final int DEFAULT_MAX_BYTES = 5 * 1024;
+
+  public static final int DEFAULT_MAX_STATEMENTS = 20;
+
+  private static final int MAX_PENDING_GROUPS = 1_024;
+
+  private final AsyncWriter writer;
+  private final Metadata metadata;
+  private final ProtocolVersion protocolVersion;
+  private final CodecRegistry codecRegistry;
+  private final int maxStatements;
+  private final int maxBytes;
+
+  private final Map<Object, PendingBatch> pending = new HashMap<>();
+
+  public TokenAwareBatcher(AsyncWriter writer, Session session) {
+    this(writer, session, DEFAULT_MAX_STATEMENTS, DEFAULT_MAX_BYTES);
+  }
+
+  public TokenAwareBatcher(AsyncWriter writer, Session session, int maxStatements, int maxBytes) {
+    this.writer = writer;
+    this.maxStatements = maxStatements;
+    this.maxBytes = maxBytes;
+
+    Cluster cluster = session.getCluster();
+    if (cluster != null) {
+      this.metadata = cluster.getMetadata();
+      this.protocolVersion =
+          cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+      this.codecRegistry = cluster.getConfiguration().getCodecRegistry();
+    } else {
+      this.metadata = null;
+      this.protocolVersion = ProtocolVersion.NEWEST_SUPPORTED;
+      this.codecRegistry = CodecRegistry.DEFAULT_INSTANCE;
+    }
+  }
+
+  /**
+   * Adds {@code statement} to its replica group. Full batches are taken out under the lock but
+   * sent after leaving it, so a writer blocked on its in-flight window holds up only this caller.
+   */
+  public void add(Statement statement) {
+    int size = statement.requestSizeInBytes(protocolVersion, codecRegistry);
+    ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+    if (size >= maxBytes || routingKey == null) {
+      writer.write(statement);
+      return;
+    }
+
+    Object groupKey = groupKey(statement.getKeyspace(), routingKey);
+    List<PendingBatch> ready = new ArrayList<>(1);
+    synchronized (this) {
+      PendingBatch batch = pending.get(groupKey);
+      if (batch != null && batch.bytes + size > maxBytes) {
+        ready.add(pending.remove(groupKey));
+        batch = null;
+      }
+      if (batch == null) {
+        if (pending.size() >= MAX_PENDING_GROUPS) {
+          ready.addAll(pending.values());
+          pending.clear();
+        }
+        batch = new PendingBatch();
+        pending.put(groupKey, batch);
+      }
+
+      batch.statements.add(statement);
+      batch.bytes += size;
+      if (batch.statements.size() >= maxStatements) {
+        ready.add(pending.remove(groupKey));
+      }
+    }
+    ready.forEach(this::send);
+  }
+
+  /** Sends every partially filled batch to the writer. */
+  public void flush() {
+    List<PendingBatch> ready;
+    synchronized (this) {
+      ready = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    ready.forEach(this::send);
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+
+  private Object groupKey(String keyspace, ByteBuffer routingKey) {
+    if (metadata != null && keyspace != null) {
+      Set<Host> replicas = metadata.getReplicas(Metadata.quoteIfNecessary(keyspace), routingKey);
+      if (!replicas.isEmpty()) {
+        return replicas;
+      }
+    }
+    return routingKey;
+  }
+
+  private void send(PendingBatch batch) {
+    if (batch.statements.size() == 1) {
+      writer.write(batch.statements.get(0));
+      return;
+    }
+    writer.write(new BatchStatement(BatchStatement.Type.UNLOGGED).addAll(batch.statements));
+  }
+
+  private static class PendingBatch {
+
+    private final List<Statement> statements = new ArrayList<>();
+    private int bytes;
+  }
+}
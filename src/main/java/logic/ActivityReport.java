@@ -1,146 +1,358 @@
 package logic;
 
-import com.datastax.driver.core.LocalDate;
+import com.codahale.metrics.Timer;
 import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
 import connection.CassandraConnection;
+import connection.DatabaseCreator;
+import metrics.Instrumentation;
+import model.AudioTrack;
+import model.LongIdList;
+import model.Message;
+import model.Movie;
+import model.User;
 import org.apache.log4j.Logger;
+import store.CatalogCache;
+import store.InboxReader;
+import store.Stores;
 
-import java.util.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ActivityReport {
 
   public static final Logger LOGGER = Logger.getLogger(ActivityReport.class);
 
-  private static final String SELECT_MESSAGES_DATE_SQL = "SELECT date FROM sntask5.messages";
-  private static final String SELECT_FRIENDSHIPS_SQL =
-      "SELECT userId, friendsIds, date FROM sntask5.friendships";
-  private static final String SELECT_USERS_SQL = "SELECT id, movies FROM sntask5.users";
+  private static final String SELECT_MESSAGES_BY_DAY_SQL =
+      "SELECT date, messages FROM sntask5.messages_by_day";
+
+  private static final String SELECT_FRIENDSHIP_MAX_BY_MONTH_SQL =
+      "SELECT month, friends FROM "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH
+          + " PER PARTITION LIMIT 1";
+
+  private static final String SELECT_MOVIE_COUNT_SQL =
+      "SELECT id, movie_count FROM sntask5.users WHERE id = ?";
+
+  private static final String TABLE_MESSAGES = "sntask5.messages";
+  private static final String TABLE_FRIENDSHIPS = "sntask5.friendships";
+  private static final String TABLE_FRIEND_COUNTS = DatabaseCreator.TABLE_NAME_FRIEND_COUNTS;
+  private static final String TABLE_USERS = "sntask5.users";
+
+  public static final int FETCH_SIZE = PagedQuery.DEFAULT_FETCH_SIZE;
+  public static final int PREFETCH_THRESHOLD = PagedQuery.DEFAULT_PREFETCH_THRESHOLD;
+
+  public static final int MIN_MOVIES_FRIENDS_THRESHOLD = 100;
+  public static final int MIN_MOVIES_LIMIT = 500;
+
+  /** Generated messages fall between 2015 and the end of 2019. */
+  public static final int INBOX_NEWEST_MONTH = 201912;
+  public static final int INBOX_OLDEST_MONTH = 201501;
+
+  public static final long CATALOG_CACHE_BYTES = 64L * 1024 * 1024;
+  public static final long CATALOG_CACHE_TTL_MINUTES = 10;
 
   private ActivityReport() {}
 
+  /** Reads per-day message counts from the {@code messages_by_day} counter table. */
   public static void showAverageMessagesByDayOfWeek() {
-    try (Session session = CassandraConnection.getSession()) {
-      Calendar c = Calendar.getInstance();
-      Map<LocalDate, Integer> tempMap = new HashMap<>();
-      Map<Integer, List<Integer>> convertingMap = new HashMap<>();
-      convertingMap.put(1, new ArrayList<>());
-      convertingMap.put(2, new ArrayList<>());
-      convertingMap.put(3, new ArrayList<>());
-      convertingMap.put(4, new ArrayList<>());
-      convertingMap.put(5, new ArrayList<>());
-      convertingMap.put(6, new ArrayList<>());
-      convertingMap.put(7, new ArrayList<>());
-
-      PreparedStatement preparedStatement = session.prepare(SELECT_MESSAGES_DATE_SQL);
-      ResultSet resultSet = session.execute(preparedStatement.bind());
-
-      resultSet.forEach(
-          row -> {
-            LocalDate localDate = row.getDate(0);
-            Integer frequencyCounter = tempMap.get(localDate);
-            tempMap.put(localDate, frequencyCounter == null ? 1 : frequencyCounter + 1);
-          });
-
-      for (Map.Entry<LocalDate, Integer> entry : tempMap.entrySet()) {
-        LocalDate localDate = entry.getKey();
-        c.setTimeInMillis(localDate.getMillisSinceEpoch());
-        int dayOfWeek = c.get(Calendar.DAY_OF_WEEK);
-        convertingMap.get(dayOfWeek).add(entry.getValue());
-      }
-
-      for (Map.Entry<Integer, List<Integer>> entry : convertingMap.entrySet()) {
-        LOGGER.info(
-            "Average number of messages by day of week -"
-                + " Day of the week: "
-                + entry.getKey()
-                + ", Average number of messages: "
-                + entry.getValue().stream().mapToDouble(d -> d).average().getAsDouble());
-      }
-    } catch (Exception e) {
-      LOGGER.error(e);
+    Session session = CassandraConnection.getSession();
+    timed(
+        "averageMessagesByDayOfWeek",
+        () -> {
+          PreparedStatement preparedStatement = session.prepare(SELECT_MESSAGES_BY_DAY_SQL);
+          DailyCounts messagesByDay =
+              new PagedQuery(FETCH_SIZE, PREFETCH_THRESHOLD)
+                  .fold(
+                      session,
+                      preparedStatement.bind(),
+                      StreamingAggregator.of(
+                          DailyCounts::new,
+                          (partial, row) ->
+                              partial.add(row.getDate(0).getDaysSinceEpoch(), row.getLong(1)),
+                          DailyCounts::merge));
+
+          logAverageMessagesByDayOfWeek(messagesByDay);
+        });
+  }
+
+  /**
+   * Computes the same report by scanning every row of {@code messages}. Slow, kept to verify the
+   * counter table.
+   */
+  public static void showAverageMessagesByDayOfWeekFromScan() {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "averageMessagesByDayOfWeekFromScan",
+        () -> {
+          DailyCounts messagesByDay =
+              scanner(session)
+                  .scan(
+                      TABLE_MESSAGES,
+                      "id",
+                      "date",
+                      DailyCounts::new,
+                      (partial, row) -> partial.add(row.getDate(0).getDaysSinceEpoch(), 1),
+                      DailyCounts::merge);
+
+          logAverageMessagesByDayOfWeek(messagesByDay);
+        });
+  }
+
+  private static void logAverageMessagesByDayOfWeek(DailyCounts messagesByDay) {
+    double[] averages = messagesByDay.averageByDayOfWeek();
+    for (int dayOfWeek = 1; dayOfWeek <= 7; dayOfWeek++) {
+      LOGGER.info(
+          "Average number of messages by day of week -"
+              + " Day of the week: "
+              + dayOfWeek
+              + ", Average number of messages: "
+              + averages[dayOfWeek]);
     }
-    CassandraConnection.closeSession();
   }
 
+  /** Reads the first, largest row of each {@code friendship_max_by_month} partition. */
   public static void showMaxNumberOfNewFriendshipsFromMonthToMonth() {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "maxNewFriendshipsByMonth",
+        () -> {
+          PreparedStatement preparedStatement = session.prepare(SELECT_FRIENDSHIP_MAX_BY_MONTH_SQL);
+          MonthlyMax friendshipsByMonth =
+              new PagedQuery(FETCH_SIZE, PREFETCH_THRESHOLD)
+                  .fold(
+                      session,
+                      preparedStatement.bind(),
+                      StreamingAggregator.of(
+                          MonthlyMax::new,
+                          (partial, row) ->
+                              partial.offer(DateBuckets.fromYyyymm(row.getInt(0)), row.getInt(1)),
+                          MonthlyMax::merge));
 
-    try (Session session = CassandraConnection.getSession()) {
-      PreparedStatement preparedStatement = session.prepare(SELECT_FRIENDSHIPS_SQL);
-      ResultSet resultSet = session.execute(preparedStatement.bind());
-      Calendar c = Calendar.getInstance();
-      Map<String, Integer> tempMap = new TreeMap<>();
-
-      resultSet.forEach(
-          row -> {
-            LocalDate localDate = row.getDate(2);
-            Integer friends = row.getList(1, Long.class).size();
-            c.setTimeInMillis(localDate.getMillisSinceEpoch());
-            int year = c.get(Calendar.YEAR);
-            int month = c.get(Calendar.MONTH);
-            String strDate = year + "-" + month;
-            Integer current = tempMap.get(strDate);
-            if (current == null || current < friends) {
-              tempMap.put(strDate, friends);
-            }
-          });
-
-      tempMap.forEach(
-          (key, value) ->
-              LOGGER.info(
-                  "Max number of new friendships from month to month -"
-                      + " yyyy-MM: "
-                      + key
-                      + ", Max number of new friendships: "
-                      + value));
-    } catch (Exception e) {
-      LOGGER.error(e);
-    }
-    CassandraConnection.closeSession();
+          logMaxNumberOfNewFriendships(friendshipsByMonth);
+        });
+  }
+
+  /** Computes the same report by scanning {@code friendships}, e.g. to verify the max table. */
+  public static void showMaxNumberOfNewFriendshipsFromMonthToMonthFromScan() {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "maxNewFriendshipsByMonthFromScan",
+        () -> {
+          logMaxNumberOfNewFriendships(scanMaxFriendshipsByMonth(scanner(session)));
+        });
+  }
+
+  private static MonthlyMax scanMaxFriendshipsByMonth(TokenRangeScanner scanner) {
+    return scanner.scan(
+        TABLE_FRIENDSHIPS,
+        "userId",
+        "friendsIds, date",
+        MonthlyMax::new,
+        (partial, row) ->
+            partial.offer(
+                DateBuckets.yearMonth(row.getDate(1).getDaysSinceEpoch()),
+                row.get(0, LongIdList.class).size()),
+        MonthlyMax::merge);
+  }
+
+  private static void logMaxNumberOfNewFriendships(MonthlyMax friendshipsByMonth) {
+    friendshipsByMonth.forEach(
+        (yearMonth, friends) ->
+            LOGGER.info(
+                "Max number of new friendships from month to month -"
+                    + " yyyy-MM: "
+                    + DateBuckets.format(yearMonth)
+                    + ", Max number of new friendships: "
+                    + friends));
   }
 
   public static void showMinNumberOfWatchedMoviesByUsersWithMoreThan100friends() {
-    try (Session session = CassandraConnection.getSession()) {
-      PreparedStatement preparedStatementUser = session.prepare(SELECT_USERS_SQL);
-      PreparedStatement preparedStatementFriendships = session.prepare(SELECT_FRIENDSHIPS_SQL);
-      ResultSet resultSetUsers = session.execute(preparedStatementUser.bind());
-      ResultSet resultSetFriends = session.execute(preparedStatementFriendships.bind());
-
-      Map<Long, Integer> friends = new TreeMap<>();
-      Map<Long, Integer> users = new TreeMap<>();
-
-      resultSetFriends.forEach(
-          row -> {
-            long id = row.getLong(0);
-            int numberOfFriends = row.getList(1, Long.class).size();
-            friends.put(id, numberOfFriends);
-          });
-
-      resultSetUsers.forEach(
-          row -> {
-            long id = row.getLong(0);
-            int numberOfMovies = row.getList(1, Long.class).size();
-            if (friends.get(id) > 100) {
-              users.put(id, numberOfMovies);
-            }
-          });
-
-      users.entrySet().stream()
-          .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
-          .limit(500)
-          .forEachOrdered(
-              entry ->
+    showMinNumberOfWatchedMoviesByUsersWithMoreFriendsThan(
+        MIN_MOVIES_FRIENDS_THRESHOLD, MIN_MOVIES_LIMIT);
+  }
+
+  /**
+   * Finds the users with more than {@code friendsThreshold} friends in {@code friend_counts}, then
+   * point-reads only their {@code movie_count}, keeping the {@code limit} users with the fewest
+   * movies. Neither the {@code users} table nor a movies list is scanned.
+   */
+  public static void showMinNumberOfWatchedMoviesByUsersWithMoreFriendsThan(
+      int friendsThreshold, int limit) {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "minWatchedMovies",
+        () -> {
+          FriendCounts friends = qualifyingUsers(scanner(session), friendsThreshold);
+
+          WatchedMovies users =
+              PointReads.fold(
+                  session,
+                  session.prepare(SELECT_MOVIE_COUNT_SQL),
+                  friends.userIds(),
+                  PointReads.DEFAULT_CONCURRENCY,
+                  new WatchedMovies(limit),
+                  (partial, row) -> {
+                    if (!row.isNull(1)) {
+                      partial.add(row.getLong(0), row.getInt(1));
+                    }
+                  });
+
+          logMinNumberOfWatchedMovies(users, friendsThreshold);
+        });
+  }
+
+  /**
+   * The same report as a hash join of {@code friend_counts} (build side) with a full scan of
+   * {@code users} (probe side). Cheaper than point reads when most users qualify.
+   */
+  public static void showMinNumberOfWatchedMoviesFromScan(int friendsThreshold, int limit) {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "minWatchedMoviesFromScan",
+        () -> {
+          TokenRangeScanner scanner = scanner(session);
+          FriendCounts friends = qualifyingUsers(scanner, friendsThreshold);
+
+          WatchedMovies users =
+              scanner.scan(
+                  TABLE_USERS,
+                  "id",
+                  "id, movie_count",
+                  WatchedMovies.smallest(limit),
+                  (partial, row) -> {
+                    long id = row.getLong(0);
+                    if (friends.contains(id) && !row.isNull(1)) {
+                      partial.add(id, row.getInt(1));
+                    }
+                  },
+                  WatchedMovies::merge);
+
+          logMinNumberOfWatchedMovies(users, friendsThreshold);
+        });
+  }
+
+  private static FriendCounts qualifyingUsers(TokenRangeScanner scanner, int friendsThreshold) {
+    return scanner.scan(
+        TABLE_FRIEND_COUNTS,
+        "userid",
+        "userid, friends",
+        FriendCounts.above(friendsThreshold),
+        (partial, row) -> partial.add(row.getLong(0), (int) row.getLong(1)),
+        FriendCounts::merge);
+  }
+
+  private static void logMinNumberOfWatchedMovies(WatchedMovies users, int friendsThreshold) {
+    users
+        .smallest()
+        .forEach(
+            entry ->
+                LOGGER.info(
+                    "Min number of watched movies by users with more than "
+                        + friendsThreshold
+                        + " friends -"
+                        + " User Id: "
+                        + entry.getKey()
+                        + ", Min number of movies: "
+                        + entry.getValue()));
+  }
+
+  /** Logs the newest {@code limit} messages received by {@code userId}, with the read time. */
+  public static void showLatestInboxMessages(long userId, int limit) {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "latestInboxMessages",
+        () -> {
+          long start = System.nanoTime();
+          List<Message> inbox =
+              new InboxReader(session)
+                  .latest(userId, INBOX_NEWEST_MONTH, INBOX_OLDEST_MONTH, limit);
+          double millis = (System.nanoTime() - start) / 1e6;
+
+          inbox.forEach(
+              message ->
                   LOGGER.info(
-                      "Min number of watched movies by users with more than 100 friends -"
-                          + " User Id: "
-                          + entry.getKey()
-                          + ", Min number of movies: "
-                          + entry.getValue()));
+                      "Inbox of user "
+                          + userId
+                          + " - Sent: "
+                          + message.getDate().toInstant()
+                          + ", From: "
+                          + message.getSenderId()
+                          + ", Message Id: "
+                          + message.getId()));
+          LOGGER.info(
+              String.format(
+                  "Read %s inbox messages of user %s in %.1f ms", inbox.size(), userId, millis));
+        });
+  }
+
+  /** Logs how many friends and friends of friends {@code userId} has, read from the edge table. */
+  public static void showFriendsOfFriends(long userId) {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "friendsOfFriends",
+        () -> {
+          FriendGraph graph = new FriendGraph(session);
+          long start = System.nanoTime();
+          LongIdList friends = graph.friendIds(userId);
+          LongIdList friendsOfFriends =
+              graph.friendsOfFriends(userId, FriendGraph.DEFAULT_CONCURRENCY);
+          double millis = (System.nanoTime() - start) / 1e6;
+
+          LOGGER.info(
+              String.format(
+                  "User %s has %s friends and %s friends of friends (read in %.1f ms)",
+                  userId, friends.size(), friendsOfFriends.size(), millis));
+        });
+  }
+
+  /**
+   * Resolves the movies and audio tracks of {@code userId} through a catalog cache twice, logging
+   * the cold and the warm read times and the movie cache's counters.
+   */
+  public static void showUserCatalog(long userId) {
+    Session session = CassandraConnection.getSession();
+    timed(
+        "userCatalog",
+        () -> {
+          Stores stores =
+              Stores.cassandra(session)
+                  .withCatalogCache(
+                      CATALOG_CACHE_BYTES, CATALOG_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+          User user = stores.users().find(userId);
+          if (user == null) {
+            LOGGER.info("User " + userId + " not found");
+            return;
+          }
+          UserCatalog catalog = new UserCatalog(stores);
+          for (String pass : new String[] {"cold", "warm"}) {
+            long start = System.nanoTime();
+            List<Movie> movies = catalog.movies(user);
+            List<AudioTrack> audioTracks = catalog.audioTracks(user);
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            LOGGER.info(
+                String.format(
+                    "Resolved %s movies and %s audio tracks of user %s (%s) in %.1f ms",
+                    movies.size(), audioTracks.size(), userId, pass, millis));
+          }
+          LOGGER.info("Movie cache: " + ((CatalogCache<Movie>) stores.movies()).stats());
+        });
+  }
 
+  /** Runs {@code report}, recording its duration under {@code report.<name>} and logging errors. */
+  private static void timed(String name, Runnable report) {
+    Timer.Context context = Instrumentation.report(name).time();
+    try {
+      report.run();
     } catch (Exception e) {
       LOGGER.error(e);
+    } finally {
+      context.stop();
     }
-    CassandraConnection.closeSession();
+  }
+
+  private static TokenRangeScanner scanner(Session session) {
+    return new TokenRangeScanner(session).withPaging(FETCH_SIZE, PREFETCH_THRESHOLD);
   }
 }
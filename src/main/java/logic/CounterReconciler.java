@@ -0,0 +1,248 @@
+package logic;
+
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import connection.AsyncWriter;
+import connection.DatabaseCreator;
+import model.LongIdList;
+import org.apache.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the report tables that loads keep up to date incrementally, from scans of the base
+ * tables. Counters cannot be overwritten, so each one is moved by the difference between what the
+ * scan expects and what the table holds; run it while nothing else writes to them.
+ */
+public class CounterReconciler {
+
+  private static final Logger LOGGER = Logger.getLogger(CounterReconciler.class);
+
+  private static final String TABLE_MESSAGES = "sntask5.messages";
+  private static final String TABLE_MESSAGES_BY_DAY = "sntask5.messages_by_day";
+  private static final String TABLE_FRIENDSHIPS = "sntask5.friendships";
+
+  private static final String UPDATE_MESSAGES_BY_DAY_CQL =
+      "UPDATE " + TABLE_MESSAGES_BY_DAY + " SET messages = messages + ? WHERE date = ?";
+  private static final String UPDATE_FRIENDSHIPS_BY_MONTH_CQL =
+      "UPDATE "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIPS_BY_MONTH
+          + " SET friendships = friendships + ? WHERE month = ?";
+  private static final String UPDATE_FRIEND_COUNTS_CQL =
+      "UPDATE "
+          + DatabaseCreator.TABLE_NAME_FRIEND_COUNTS
+          + " SET friends = friends + ? WHERE userid = ?";
+  private static final String DELETE_FRIENDSHIP_MAX_CQL =
+      "DELETE FROM " + DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH + " WHERE month = ?";
+  private static final String INSERT_FRIENDSHIP_MAX_CQL =
+      "INSERT INTO "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH
+          + " (month, friends) VALUES (?, ?)";
+
+  private static final int MAX_IN_FLIGHT = 128;
+
+  private final Session session;
+  private final TokenRangeScanner scanner;
+
+  public CounterReconciler(Session session) {
+    this(
+        session,
+        new TokenRangeScanner(session)
+            .withPaging(PagedQuery.DEFAULT_FETCH_SIZE, PagedQuery.DEFAULT_PREFETCH_THRESHOLD));
+  }
+
+  public CounterReconciler(Session session, TokenRangeScanner scanner) {
+    this.session = session;
+    this.scanner = scanner;
+  }
+
+  public void reconcileAll() {
+    reconcileMessagesByDay();
+    reconcileFriendshipsByMonth();
+    reconcileFriendCounts();
+    reconcileFriendshipMaxByMonth();
+  }
+
+  /** Returns the number of days whose counter was corrected. */
+  public long reconcileMessagesByDay() {
+    DailyCounts delta =
+        scanner.scan(
+            TABLE_MESSAGES,
+            "id",
+            "date",
+            DailyCounts::new,
+            (partial, row) -> partial.add(row.getDate(0).getDaysSinceEpoch(), 1),
+            DailyCounts::merge);
+    scanner
+        .scan(
+            TABLE_MESSAGES_BY_DAY,
+            "date",
+            "date, messages",
+            DailyCounts::new,
+            (partial, row) -> partial.add(row.getDate(0).getDaysSinceEpoch(), -row.getLong(1)),
+            DailyCounts::merge)
+        .forEach(delta::add);
+
+    PreparedStatement update = session.prepare(UPDATE_MESSAGES_BY_DAY_CQL);
+    AtomicLong corrected = new AtomicLong();
+    try (AsyncWriter writer = new AsyncWriter(session, MAX_IN_FLIGHT, 0)) {
+      delta.forEach(
+          (epochDay, count) -> {
+            writer.write(update.bind(count, LocalDate.fromDaysSinceEpoch(epochDay)));
+            corrected.incrementAndGet();
+          });
+      return logCorrected(TABLE_MESSAGES_BY_DAY, corrected.get(), writer);
+    }
+  }
+
+  public long reconcileFriendshipsByMonth() {
+    Map<Integer, Long> delta =
+        scanner.scan(
+            TABLE_FRIENDSHIPS,
+            "userId",
+            "friendsIds, date",
+            HashMap<Integer, Long>::new,
+            (partial, row) ->
+                partial.merge(
+                    DateBuckets.toYyyymm(
+                        DateBuckets.yearMonth(row.getDate(1).getDaysSinceEpoch())),
+                    (long) row.get(0, LongIdList.class).size(),
+                    Long::sum),
+            CounterReconciler::sum);
+    scanner
+        .scan(
+            DatabaseCreator.TABLE_NAME_FRIENDSHIPS_BY_MONTH,
+            "month",
+            "month, friendships",
+            HashMap<Integer, Long>::new,
+            (partial, row) -> partial.merge(row.getInt(0), -row.getLong(1), Long::sum),
+            CounterReconciler::sum)
+        .forEach((month, count) -> delta.merge(month, count, Long::sum));
+
+    PreparedStatement update = session.prepare(UPDATE_FRIENDSHIPS_BY_MONTH_CQL);
+    long corrected = 0;
+    try (AsyncWriter writer = new AsyncWriter(session, MAX_IN_FLIGHT, 0)) {
+      for (Map.Entry<Integer, Long> entry : delta.entrySet()) {
+        if (entry.getValue() != 0) {
+          writer.write(update.bind(entry.getValue(), entry.getKey()));
+          corrected++;
+        }
+      }
+      return logCorrected(DatabaseCreator.TABLE_NAME_FRIENDSHIPS_BY_MONTH, corrected, writer);
+    }
+  }
+
+  public long reconcileFriendCounts() {
+    FriendCounts expected =
+        scanner.scan(
+            TABLE_FRIENDSHIPS,
+            "userId",
+            "userId, friendsIds",
+            FriendCounts::new,
+            (partial, row) -> partial.add(row.getLong(0), row.get(1, LongIdList.class).size()),
+            FriendCounts::merge);
+    FriendCounts current =
+        scanner.scan(
+            DatabaseCreator.TABLE_NAME_FRIEND_COUNTS,
+            "userid",
+            "userid, friends",
+            FriendCounts::new,
+            (partial, row) -> partial.add(row.getLong(0), (int) row.getLong(1)),
+            FriendCounts::merge);
+
+    PreparedStatement update = session.prepare(UPDATE_FRIEND_COUNTS_CQL);
+    AtomicLong corrected = new AtomicLong();
+    try (AsyncWriter writer = new AsyncWriter(session, MAX_IN_FLIGHT, 0)) {
+      expected.forEach(
+          (userId, friends) -> {
+            long delta = friends - current.get(userId);
+            if (delta != 0) {
+              writer.write(update.bind(delta, userId));
+              corrected.incrementAndGet();
+            }
+          });
+      current.forEach(
+          (userId, friends) -> {
+            if (!expected.contains(userId) && friends != 0) {
+              writer.write(update.bind((long) -friends, userId));
+              corrected.incrementAndGet();
+            }
+          });
+      return logCorrected(DatabaseCreator.TABLE_NAME_FRIEND_COUNTS, corrected.get(), writer);
+    }
+  }
+
+  /**
+   * Replaces every partition of {@code friendship_max_by_month} with the scanned maximum. The
+   * deletes are written one microsecond before the inserts, so their order on the wire does not
+   * matter.
+   */
+  public long reconcileFriendshipMaxByMonth() {
+    MonthlyMax expected =
+        scanner.scan(
+            TABLE_FRIENDSHIPS,
+            "userId",
+            "friendsIds, date",
+            MonthlyMax::new,
+            (partial, row) ->
+                partial.offer(
+                    DateBuckets.yearMonth(row.getDate(1).getDaysSinceEpoch()),
+                    row.get(0, LongIdList.class).size()),
+            MonthlyMax::merge);
+    MonthlyMax stale =
+        scanner.scan(
+            DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH,
+            "month",
+            "month",
+            MonthlyMax::new,
+            (partial, row) -> partial.offer(DateBuckets.fromYyyymm(row.getInt(0)), 0),
+            MonthlyMax::merge);
+
+    PreparedStatement delete = session.prepare(DELETE_FRIENDSHIP_MAX_CQL);
+    PreparedStatement insert = session.prepare(INSERT_FRIENDSHIP_MAX_CQL);
+    long timestamp = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    AtomicLong corrected = new AtomicLong();
+    try (AsyncWriter writer = new AsyncWriter(session, MAX_IN_FLIGHT, 0)) {
+      stale.forEach(
+          (yearMonth, ignored) ->
+              writer.write(
+                  delete.bind(DateBuckets.toYyyymm(yearMonth)).setDefaultTimestamp(timestamp)));
+      expected.forEach(
+          (yearMonth, friends) -> {
+            writer.write(
+                insert
+                    .bind(DateBuckets.toYyyymm(yearMonth), friends)
+                    .setDefaultTimestamp(timestamp + 1));
+            corrected.incrementAndGet();
+          });
+      return logCorrected(
+          DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH, corrected.get(), writer);
+    }
+  }
+
+  private static HashMap<Integer, Long> sum(
+      HashMap<Integer, Long> left, HashMap<Integer, Long> right) {
+    right.forEach((key, value) -> left.merge(key, value, Long::sum));
+    return left;
+  }
+
+  /**
+   * Waits for the writes and fails if any of them did not apply, as the table is then still off;
+   * running the reconciler again recomputes the remaining deltas.
+   */
+  private static long logCorrected(String table, long corrected, AsyncWriter writer) {
+    writer.awaitCompletion();
+    if (writer.getFailed() > 0) {
+      throw new IllegalStateException(
+          String.format(
+              "Reconciling %s failed: %s of %s rewrites did not apply",
+              table, writer.getFailed(), corrected));
+    }
+    LOGGER.info(String.format("Reconciled %s: %s rows rewritten", table, corrected));
+    return corrected;
+  }
+}
@@ -0,0 +1,78 @@
+package logic;
+
+import java.util.Arrays;
+
+/** Counts per day, held in a {@code long[]} indexed by days since epoch relative to a base day. */
+public class DailyCounts {
+
+  private static final int INITIAL_CAPACITY = 2 * 366;
+
+  private long[] counts = new long[0];
+  private int baseDay;
+
+  public void add(int epochDay, long count) {
+    ensureCovered(epochDay);
+    counts[epochDay - baseDay] += count;
+  }
+
+  public DailyCounts merge(DailyCounts other) {
+    for (int i = 0; i < other.counts.length; i++) {
+      if (other.counts[i] != 0) {
+        add(other.baseDay + i, other.counts[i]);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Average count of the days seen for each day of week, indexed 1 (Sunday) to 7 (Saturday) as in
+   * {@link DateBuckets#dayOfWeek(int)}. Days without any count are not part of the average.
+   */
+  public double[] averageByDayOfWeek() {
+    long[] sums = new long[8];
+    int[] days = new int[8];
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        int dayOfWeek = DateBuckets.dayOfWeek(baseDay + i);
+        sums[dayOfWeek] += counts[i];
+        days[dayOfWeek]++;
+      }
+    }
+
+    double[] averages = new double[8];
+    for (int dayOfWeek = 1; dayOfWeek <= 7; dayOfWeek++) {
+      averages[dayOfWeek] = days[dayOfWeek] == 0 ? 0 : (double) sums[dayOfWeek] / days[dayOfWeek];
+    }
+    return averages;
+  }
+
+  /** Visits the days with a non-zero count, in ascending order. */
+  public void forEach(DayConsumer consumer) {
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        consumer.accept(baseDay + i, counts[i]);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  public interface DayConsumer {
+    void accept(int epochDay, long count);
+  }
+
+  private void ensureCovered(int epochDay) {
+    if (counts.length == 0) {
+      counts = new long[INITIAL_CAPACITY];
+      baseDay = epochDay - INITIAL_CAPACITY / 2;
+    }
+    if (epochDay < baseDay) {
+      int shift = Math.max(baseDay - epochDay, counts.length);
+      long[] grown = new long[counts.length + shift];
+      System.arraycopy(counts, 0, grown, shift, counts.length);
+      counts = grown;
+      baseDay -= shift;
+    } else if (epochDay - baseDay >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(epochDay - baseDay + 1, counts.length * 2));
+    }
+  }
+}
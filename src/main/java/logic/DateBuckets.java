@@ -0,0 +1,56 @@
+package logic;
+
+/**
+ * Calendar arithmetic on days since 1970-01-01 (UTC), as returned by {@code
+ * LocalDate.getDaysSinceEpoch()}. Keys are plain ints, so hot aggregation loops neither allocate
+ * nor share mutable {@code Calendar} state.
+ */
+public class DateBuckets {
+
+  private static final int DAYS_PER_400_YEARS = 146_097;
+  private static final int DAYS_FROM_0000_03_01_TO_EPOCH = 719_468;
+
+  private DateBuckets() {}
+
+  /** Day of week numbered like {@code Calendar.DAY_OF_WEEK}: 1 is Sunday, 7 is Saturday. */
+  public static int dayOfWeek(int epochDay) {
+    // 1970-01-01 was a Thursday (5)
+    return Math.floorMod(epochDay + 4, 7) + 1;
+  }
+
+  /** Months since year 0: {@code year * 12 + (month - 1)}. */
+  public static int yearMonth(int epochDay) {
+    // Civil-from-days over 400-year eras, with years starting on March 1st
+    int z = epochDay + DAYS_FROM_0000_03_01_TO_EPOCH;
+    int era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+    int dayOfEra = z - era * DAYS_PER_400_YEARS;
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return year * 12 + month - 1;
+  }
+
+  public static int year(int yearMonth) {
+    return Math.floorDiv(yearMonth, 12);
+  }
+
+  /** Month of year, 1 to 12. */
+  public static int month(int yearMonth) {
+    return Math.floorMod(yearMonth, 12) + 1;
+  }
+
+  public static String format(int yearMonth) {
+    return String.format("%04d-%02d", year(yearMonth), month(yearMonth));
+  }
+
+  /** Converts a {@code yyyymm} table key, as written by {@code connection.Months}. */
+  public static int fromYyyymm(int yyyymm) {
+    return yyyymm / 100 * 12 + yyyymm % 100 - 1;
+  }
+
+  public static int toYyyymm(int yearMonth) {
+    return year(yearMonth) * 100 + month(yearMonth);
+  }
+}
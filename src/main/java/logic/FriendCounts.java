@@ -0,0 +1,66 @@
+package logic;
+
+import model.LongIntMap;
+
+import java.util.function.Supplier;
+
+/**
+ * Number of friends per user id, the build side of the min-watched-movies report. With a threshold
+ * only users with more friends than that are kept, so memory grows with the qualifying users only.
+ */
+public class FriendCounts {
+
+  private final LongIntMap counts = new LongIntMap();
+  private final int threshold;
+
+  public FriendCounts() {
+    this(Integer.MIN_VALUE);
+  }
+
+  private FriendCounts(int threshold) {
+    this.threshold = threshold;
+  }
+
+  /** Partials that keep only users with more than {@code threshold} friends. */
+  public static Supplier<FriendCounts> above(int threshold) {
+    return () -> new FriendCounts(threshold);
+  }
+
+  public void add(long userId, int friends) {
+    if (friends > threshold) {
+      counts.put(userId, friends);
+    }
+  }
+
+  public boolean contains(long userId) {
+    return counts.containsKey(userId);
+  }
+
+  /** Friends of {@code userId}, or {@code 0} if the user was not added or filtered out. */
+  public int get(long userId) {
+    return counts.get(userId, 0);
+  }
+
+  public int size() {
+    return counts.size();
+  }
+
+  /** The kept user ids, in no particular order. */
+  public long[] userIds() {
+    return counts.keys();
+  }
+
+  public FriendCounts merge(FriendCounts other) {
+    counts.putAll(other.counts);
+    return this;
+  }
+
+  public void forEach(UserConsumer consumer) {
+    counts.forEach(consumer::accept);
+  }
+
+  @FunctionalInterface
+  public interface UserConsumer {
+    void accept(long userId, int friends);
+  }
+}
@@ -0,0 +1,161 @@
+package logic;
+
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import connection.DatabaseCreator;
+import model.LongIdList;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Adjacency reads and single-edge writes on {@code friends_by_user}. A user's friends are one
+ * partition clustered by friend id, so they can be paged through or streamed without ever
+ * materializing a whole list cell.
+ */
+public class FriendGraph {
+
+  private static final String SELECT_FRIENDS_CQL =
+      "SELECT friendid FROM " + DatabaseCreator.TABLE_NAME_FRIENDS_BY_USER + " WHERE userid = ?";
+  private static final String INSERT_FRIEND_CQL =
+      "INSERT INTO "
+          + DatabaseCreator.TABLE_NAME_FRIENDS_BY_USER
+          + " (userid, friendid, since) VALUES (?, ?, ?)";
+  private static final String DELETE_FRIEND_CQL =
+      "DELETE FROM "
+          + DatabaseCreator.TABLE_NAME_FRIENDS_BY_USER
+          + " WHERE userid = ? AND friendid = ?";
+
+  public static final int DEFAULT_CONCURRENCY = 32;
+
+  private final Session session;
+  private final PreparedStatement selectFriends;
+  private final PreparedStatement insertFriend;
+  private final PreparedStatement deleteFriend;
+  private final PagedQuery pagedQuery = new PagedQuery();
+
+  public FriendGraph(Session session) {
+    this.session = session;
+    this.selectFriends = session.prepare(SELECT_FRIENDS_CQL);
+    this.insertFriend = session.prepare(INSERT_FRIEND_CQL).setIdempotent(true);
+    this.deleteFriend = session.prepare(DELETE_FRIEND_CQL).setIdempotent(true);
+  }
+
+  public void addFriend(long userId, long friendId, LocalDate since) {
+    session.execute(insertFriend.bind(userId, friendId, since));
+  }
+
+  public void removeFriend(long userId, long friendId) {
+    session.execute(deleteFriend.bind(userId, friendId));
+  }
+
+  /**
+   * One page of a user's friends in ascending id order. Pass the returned paging state back in,
+   * or {@code null} for the first page.
+   */
+  public FriendPage friends(long userId, int pageSize, String pagingState) {
+    Statement statement = selectFriends.bind(userId).setFetchSize(pageSize);
+    if (pagingState != null) {
+      statement.setPagingState(PagingState.fromString(pagingState));
+    }
+
+    ResultSet resultSet = session.execute(statement);
+    long[] ids = new long[Math.min(resultSet.getAvailableWithoutFetching(), pageSize)];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = resultSet.one().getLong(0);
+    }
+    PagingState next = resultSet.getExecutionInfo().getPagingState();
+    return new FriendPage(LongIdList.wrap(ids), next == null ? null : next.toString());
+  }
+
+  /** Streams every friend id of {@code userId} in ascending order. */
+  public void forEachFriend(long userId, LongConsumer sink) {
+    pagedQuery.fold(
+        session,
+        selectFriends.bind(userId),
+        sink,
+        StreamingAggregator.of(
+            () -> sink, (consumer, row) -> consumer.accept(row.getLong(0)), (left, right) -> left));
+  }
+
+  public LongIdList friendIds(long userId) {
+    LongStream.Builder ids = LongStream.builder();
+    forEachFriend(userId, ids::add);
+    return LongIdList.wrap(ids.build().toArray());
+  }
+
+  /**
+   * Distinct friends of friends of {@code userId}, excluding the user and their direct friends,
+   * sorted ascending. Up to {@code concurrency} adjacency reads are in flight at once.
+   */
+  public LongIdList friendsOfFriends(long userId, int concurrency) {
+    LongIdList friends = friendIds(userId);
+    LongStream.Builder candidates = LongStream.builder();
+
+    Deque<ResultSetFuture> window = new ArrayDeque<>(concurrency);
+    for (int i = 0; i < friends.size(); i++) {
+      if (window.size() == concurrency) {
+        collect(window.removeFirst(), candidates);
+      }
+      window.addLast(
+          session.executeAsync(
+              selectFriends.bind(friends.get(i)).setFetchSize(PagedQuery.DEFAULT_FETCH_SIZE)));
+    }
+    while (!window.isEmpty()) {
+      collect(window.removeFirst(), candidates);
+    }
+
+    long[] direct = friends.toArray();
+    long[] ids = candidates.build().toArray();
+    Arrays.sort(ids);
+
+    int size = 0;
+    for (int i = 0; i < ids.length; i++) {
+      long id = ids[i];
+      boolean repeated = size > 0 && ids[size - 1] == id;
+      if (!repeated && id != userId && Arrays.binarySearch(direct, id) < 0) {
+        ids[size++] = id;
+      }
+    }
+    return LongIdList.wrap(Arrays.copyOf(ids, size));
+  }
+
+  private static void collect(ResultSetFuture future, LongStream.Builder candidates) {
+    for (Row row : future.getUninterruptibly()) {
+      candidates.add(row.getLong(0));
+    }
+  }
+
+  /** A page of friend ids and the state to fetch the next one, {@code null} after the last. */
+  public static class FriendPage {
+
+    private final LongIdList friendIds;
+    private final String pagingState;
+
+    FriendPage(LongIdList friendIds, String pagingState) {
+      this.friendIds = friendIds;
+      this.pagingState = pagingState;
+    }
+
+    public LongIdList getFriendIds() {
+      return friendIds;
+    }
+
+    public String getPagingState() {
+      return pagingState;
+    }
+
+    public boolean hasMore() {
+      return pagingState != null;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * Maximum value per month, held in an {@code int[]} indexed by {@link DateBuckets#yearMonth(int)}
+ * keys relative to a base month. Months without a value hold {@link #NONE}.
+ */
+public class MonthlyMax {
+
+  public static final int NONE = Integer.MIN_VALUE;
+
+  private static final int INITIAL_CAPACITY = 10 * 12;
+
+  private int[] max = new int[0];
+  private int baseMonth;
+
+  public void offer(int yearMonth, int value) {
+    ensureCovered(yearMonth);
+    int index = yearMonth - baseMonth;
+    if (value > max[index]) {
+      max[index] = value;
+    }
+  }
+
+  public MonthlyMax merge(MonthlyMax other) {
+    for (int i = 0; i < other.max.length; i++) {
+      if (other.max[i] != NONE) {
+        offer(other.baseMonth + i, other.max[i]);
+      }
+    }
+    return this;
+  }
+
+  /** Visits the months that have a value, in ascending order. */
+  public void forEach(MonthConsumer consumer) {
+    for (int i = 0; i < max.length; i++) {
+      if (max[i] != NONE) {
+        consumer.accept(baseMonth + i, max[i]);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  public interface MonthConsumer {
+    void accept(int yearMonth, int value);
+  }
+
+  private void ensureCovered(int yearMonth) {
+    if (max.length == 0) {
+      max = new int[INITIAL_CAPACITY];
+      Arrays.fill(max, NONE);
+      baseMonth = yearMonth - INITIAL_CAPACITY / 2;
+    }
+    if (yearMonth < baseMonth) {
+      int shift = Math.max(baseMonth - yearMonth, max.length);
+      int[] grown = new int[max.length + shift];
+      Arrays.fill(grown, 0, shift, NONE);
+      System.arraycopy(max, 0, grown, shift, max.length);
+      max = grown;
+      baseMonth -= shift;
+    } else if (yearMonth - baseMonth >= max.length) {
+      int oldLength = max.length;
+      max = Arrays.copyOf(max, Math.max(yearMonth - baseMonth + 1, oldLength * 2));
+      Arrays.fill(max, oldLength, max.length, NONE);
+    }
+  }
+}
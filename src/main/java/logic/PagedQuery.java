@@ -0,0 +1,51 @@
+package logic;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Runs a query page by page and folds every row into a {@link StreamingAggregator} partial. When
+ * fewer than {@code prefetchThreshold} rows of the current page are left, the next page is
+ * requested in the background, so it is usually already on the client when it is needed.
+ */
+public class PagedQuery {
+
+  public static final int DEFAULT_FETCH_SIZE = 5_000;
+  public static final int DEFAULT_PREFETCH_THRESHOLD = DEFAULT_FETCH_SIZE / 2;
+
+  private final int fetchSize;
+  private final int prefetchThreshold;
+
+  public PagedQuery() {
+    this(DEFAULT_FETCH_SIZE, DEFAULT_PREFETCH_THRESHOLD);
+  }
+
+  public PagedQuery(int fetchSize, int prefetchThreshold) {
+    if (fetchSize < 1 || prefetchThreshold < 0 || prefetchThreshold >= fetchSize) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid paging: fetch size %s, prefetch threshold %s", fetchSize, prefetchThreshold));
+    }
+    this.fetchSize = fetchSize;
+    this.prefetchThreshold = prefetchThreshold;
+  }
+
+  public <A> A fold(
+      Session session, Statement statement, A partial, StreamingAggregator<A> aggregator) {
+    ResultSet resultSet = session.execute(statement.setFetchSize(fetchSize));
+    for (Row row : resultSet) {
+      if (resultSet.getAvailableWithoutFetching() == prefetchThreshold
+          && !resultSet.isFullyFetched()) {
+        resultSet.fetchMoreResults();
+      }
+      aggregator.accumulate(partial, row);
+    }
+    return partial;
+  }
+
+  public <A> A fold(Session session, Statement statement, StreamingAggregator<A> aggregator) {
+    return fold(session, statement, aggregator.newPartial(), aggregator);
+  }
+}
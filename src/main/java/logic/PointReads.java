@@ -0,0 +1,54 @@
+package logic;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-partition reads for a known set of keys, with at most {@code concurrency} queries in
+ * flight. Results are folded on the calling thread in key order, so the partial needs no locking.
+ * Each read is routed to a replica of its key by the token-aware policy.
+ */
+public class PointReads {
+
+  public static final int DEFAULT_CONCURRENCY = 128;
+
+  private PointReads() {}
+
+  /** Binds {@code select} to each key in turn and folds every returned row into the partial. */
+  public static <A> A fold(
+      Session session,
+      PreparedStatement select,
+      long[] keys,
+      int concurrency,
+      A partial,
+      BiConsumer<A, Row> accumulator) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+    }
+
+    Deque<ResultSetFuture> window = new ArrayDeque<>(concurrency);
+    for (long key : keys) {
+      if (window.size() == concurrency) {
+        accumulate(window.removeFirst(), partial, accumulator);
+      }
+      window.addLast(session.executeAsync(select.bind(key)));
+    }
+    while (!window.isEmpty()) {
+      accumulate(window.removeFirst(), partial, accumulator);
+    }
+    return partial;
+  }
+
+  private static <A> void accumulate(
+      ResultSetFuture future, A partial, BiConsumer<A, Row> accumulator) {
+    for (Row row : future.getUninterruptibly()) {
+      accumulator.accept(partial, row);
+    }
+  }
+}
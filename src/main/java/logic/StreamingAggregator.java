@@ -0,0 +1,40 @@
+package logic;
+
+import com.datastax.driver.core.Row;
+
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Folds query rows into a partial result one page at a time, so a scan never holds more than the
+ * current page in memory. Partials built on different threads are combined with {@link #merge}.
+ */
+public interface StreamingAggregator<A> {
+
+  A newPartial();
+
+  void accumulate(A partial, Row row);
+
+  A merge(A left, A right);
+
+  static <A> StreamingAggregator<A> of(
+      Supplier<A> newPartial, BiConsumer<A, Row> accumulator, BinaryOperator<A> combiner) {
+    return new StreamingAggregator<A>() {
+      @Override
+      public A newPartial() {
+        return newPartial.get();
+      }
+
+      @Override
+      public void accumulate(A partial, Row row) {
+        accumulator.accept(partial, row);
+      }
+
+      @Override
+      public A merge(A left, A right) {
+        return combiner.apply(left, right);
+      }
+    };
+  }
+}
@@ -0,0 +1,175 @@
+package logic;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Full-table scanner that splits the token ring into ranges, reads them in parallel with at most
+ * {@code concurrency} queries in flight, folds each range into its own partial aggregate and
+ * merges the partials at the end. Each range query is sent to a live replica that owns the range,
+ * rotating over the replicas from one range to the next; a range with no live replica is left to
+ * the load-balancing policy. Driver 3 routes by partition key only, so the replica is pinned with
+ * {@link Statement#setHost} rather than through a routing token.
+ */
+public class TokenRangeScanner {
+
+  private static final int RANGES_PER_THREAD = 4;
+
+  private final Session session;
+  private final int concurrency;
+  private final List<TokenRange> ranges;
+  private final Metadata metadata;
+  private PagedQuery pagedQuery = new PagedQuery();
+
+  public TokenRangeScanner(Session session) {
+    this(session, Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  public TokenRangeScanner(Session session, int concurrency) {
+    this(session, concurrency, session.getCluster().getMetadata());
+  }
+
+  private TokenRangeScanner(Session session, int concurrency, Metadata metadata) {
+    this(
+        session,
+        concurrency,
+        splitRing(metadata.getTokenRanges(), concurrency * RANGES_PER_THREAD),
+        metadata);
+  }
+
+  /**
+   * Scans only the given ranges, e.g. slices served by a local stand-in for {@link Session}. The
+   * queries are not pinned to replicas.
+   */
+  public TokenRangeScanner(Session session, int concurrency, List<TokenRange> ranges) {
+    this(session, concurrency, ranges, null);
+  }
+
+  private TokenRangeScanner(
+      Session session, int concurrency, List<TokenRange> ranges, Metadata metadata) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+    }
+    this.session = session;
+    this.concurrency = concurrency;
+    this.ranges = ranges;
+    this.metadata = metadata;
+  }
+
+  /** Sets the page size and prefetch threshold used for every range query. */
+  public TokenRangeScanner withPaging(int fetchSize, int prefetchThreshold) {
+    this.pagedQuery = new PagedQuery(fetchSize, prefetchThreshold);
+    return this;
+  }
+
+  public <A> A scan(
+      String table,
+      String partitionKey,
+      String columns,
+      Supplier<A> newPartial,
+      BiConsumer<A, Row> accumulator,
+      BinaryOperator<A> combiner) {
+    return scan(
+        table, partitionKey, columns, StreamingAggregator.of(newPartial, accumulator, combiner));
+  }
+
+  /**
+   * Runs {@code SELECT columns FROM table} over every range. {@code partitionKey} is the column
+   * list passed to {@code token(...)}.
+   */
+  public <A> A scan(
+      String table, String partitionKey, String columns, StreamingAggregator<A> aggregator) {
+
+    String token = "token(" + partitionKey + ")";
+    String select = "SELECT " + columns + " FROM " + table + " WHERE " + token;
+    PreparedStatement betweenTokens = session.prepare(select + " > ? AND " + token + " <= ?");
+    PreparedStatement afterToken = session.prepare(select + " > ?");
+    String keyspace =
+        table.contains(".") ? table.substring(0, table.indexOf('.')) : session.getLoggedKeyspace();
+
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    try {
+      List<Future<A>> partials = new ArrayList<>();
+      for (int i = 0; i < ranges.size(); i++) {
+        TokenRange range = ranges.get(i);
+        Statement statement = bind(range, betweenTokens, afterToken);
+        Host replica = replica(keyspace, range, i);
+        if (replica != null) {
+          statement.setHost(replica);
+        }
+        partials.add(executor.submit(() -> pagedQuery.fold(session, statement, aggregator)));
+      }
+
+      A result = aggregator.newPartial();
+      for (Future<A> partial : partials) {
+        result = aggregator.merge(result, partial.get());
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while scanning " + table, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Scan of " + table + " failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * After {@link TokenRange#unwrap()} the only range that ends at or before its start is the one
+   * ending at the minimum token, which CQL can only express as {@code token > start}.
+   */
+  private static BoundStatement bind(
+      TokenRange range, PreparedStatement betweenTokens, PreparedStatement afterToken) {
+    if (range.getEnd().compareTo(range.getStart()) <= 0) {
+      return afterToken.bind().setToken(0, range.getStart());
+    }
+    return betweenTokens.bind().setToken(0, range.getStart()).setToken(1, range.getEnd());
+  }
+
+  /** The {@code index}-th live replica of {@code range}, modulo their number, if any. */
+  private Host replica(String keyspace, TokenRange range, int index) {
+    if (metadata == null || keyspace == null) {
+      return null;
+    }
+    List<Host> replicas =
+        metadata.getReplicas(keyspace, range).stream()
+            .filter(Host::isUp)
+            .collect(Collectors.toList());
+    return replicas.isEmpty() ? null : replicas.get(index % replicas.size());
+  }
+
+  /**
+   * Splits each ring range evenly so that there are at least {@code targetRanges} in all, and
+   * unwraps the one that wraps around the ring.
+   */
+  static List<TokenRange> splitRing(Collection<TokenRange> ringRanges, int targetRanges) {
+    int splits = Math.max(1, (targetRanges + ringRanges.size() - 1) / ringRanges.size());
+
+    List<TokenRange> result = new ArrayList<>();
+    for (TokenRange ringRange : ringRanges) {
+      for (TokenRange split : ringRange.splitEvenly(splits)) {
+        result.addAll(split.unwrap());
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,49 @@
+package logic;
+
+import model.AudioTrack;
+import model.LongIdList;
+import model.Movie;
+import model.User;
+import store.CatalogStore;
+import store.Stores;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the movie and audio-track ids of a user profile to the catalog items, one {@link
+ * CatalogStore#findAll} per list. Ids missing from the catalog are skipped.
+ */
+public class UserCatalog {
+
+  private final Stores stores;
+
+  public UserCatalog(Stores stores) {
+    this.stores = stores;
+  }
+
+  public List<Movie> movies(User user) {
+    return resolve(stores.movies(), user.getMovies());
+  }
+
+  public List<AudioTrack> audioTracks(User user) {
+    return resolve(stores.audioTracks(), user.getAudioTracks());
+  }
+
+  /** The items in the order of {@code ids}. */
+  private static <T> List<T> resolve(CatalogStore<T> catalog, LongIdList ids) {
+    if (ids == null || ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Map<Long, T> found = catalog.findAll(ids.toArray());
+    List<T> items = new ArrayList<>(found.size());
+    for (int i = 0; i < ids.size(); i++) {
+      T item = found.get(ids.get(i));
+      if (item != null) {
+        items.add(item);
+      }
+    }
+    return items;
+  }
+}
@@ -0,0 +1,116 @@
+package logic;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The {@code limit} users with the fewest watched movies, the probe side of the min-movies report.
+ * Kept in a bounded max-heap, so each row costs O(log limit) and memory never exceeds the limit.
+ * Ties are broken by user id, smaller ids first.
+ */
+public class WatchedMovies {
+
+  private final int limit;
+  private final int[] movies;
+  private final long[] userIds;
+  private int size;
+
+  public WatchedMovies(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive: " + limit);
+    }
+    this.limit = limit;
+    this.movies = new int[limit];
+    this.userIds = new long[limit];
+  }
+
+  public static Supplier<WatchedMovies> smallest(int limit) {
+    return () -> new WatchedMovies(limit);
+  }
+
+  public void add(long userId, int numberOfMovies) {
+    if (size < limit) {
+      movies[size] = numberOfMovies;
+      userIds[size] = userId;
+      siftUp(size++);
+    } else if (before(numberOfMovies, userId, 0)) {
+      movies[0] = numberOfMovies;
+      userIds[0] = userId;
+      siftDown(0);
+    }
+  }
+
+  public WatchedMovies merge(WatchedMovies other) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.userIds[i], other.movies[i]);
+    }
+    return this;
+  }
+
+  /** The kept users and their number of movies, fewest first. */
+  public List<Map.Entry<Long, Integer>> smallest() {
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(
+        order,
+        (a, b) ->
+            movies[a] != movies[b]
+                ? Integer.compare(movies[a], movies[b])
+                : Long.compare(userIds[a], userIds[b]));
+
+    List<Map.Entry<Long, Integer>> result = new ArrayList<>(size);
+    for (int i : order) {
+      result.add(new AbstractMap.SimpleImmutableEntry<>(userIds[i], movies[i]));
+    }
+    return result;
+  }
+
+  /** Whether the entry sorts before the one at {@code index}, i.e. is the smaller of the two. */
+  private boolean before(int numberOfMovies, long userId, int index) {
+    return numberOfMovies != movies[index]
+        ? numberOfMovies < movies[index]
+        : userId < userIds[index];
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (!before(movies[parent], userIds[parent], index)) {
+        return;
+      }
+      swap(index, parent);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    while (true) {
+      int largest = index;
+      for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+        if (before(movies[largest], userIds[largest], child)) {
+          largest = child;
+        }
+      }
+      if (largest == index) {
+        return;
+      }
+      swap(index, largest);
+      index = largest;
+    }
+  }
+
+  private void swap(int i, int j) {
+    int movie = movies[i];
+    movies[i] = movies[j];
+    movies[j] = movie;
+    long userId = userIds[i];
+    userIds[i] = userIds[j];
+    userIds[j] = userId;
+  }
+}
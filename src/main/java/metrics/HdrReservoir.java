@@ -0,0 +1,42 @@
+package metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Reservoir} backed by an HdrHistogram {@link Recorder}: recording is wait-free and keeps
+ * every value at 3 significant digits, so p99 and p999 are exact rather than sampled. Snapshots
+ * cover all values since the reservoir was created.
+ */
+public class HdrReservoir implements Reservoir {
+
+  /** Latencies are recorded in nanoseconds; longer ones are clamped to this. */
+  public static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.MINUTES.toNanos(1);
+
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+  private final Histogram total = new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+  private Histogram interval;
+
+  @Override
+  public int size() {
+    return getSnapshot().size();
+  }
+
+  @Override
+  public void update(long value) {
+    recorder.recordValue(Math.max(0, Math.min(value, HIGHEST_TRACKABLE_VALUE)));
+  }
+
+  @Override
+  public synchronized Snapshot getSnapshot() {
+    interval = recorder.getIntervalHistogram(interval);
+    total.add(interval);
+    return new HdrSnapshot(total.copy());
+  }
+}
@@ -0,0 +1,67 @@
+package metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/** {@link Snapshot} reading quantiles straight from an HdrHistogram. */
+class HdrSnapshot extends Snapshot {
+
+  private final Histogram histogram;
+
+  HdrSnapshot(Histogram histogram) {
+    this.histogram = histogram;
+  }
+
+  @Override
+  public double getValue(double quantile) {
+    if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+      throw new IllegalArgumentException(quantile + " is not in [0..1]");
+    }
+    return histogram.getValueAtPercentile(quantile * 100.0);
+  }
+
+  /** Only the extremes and the 50th to 99.9th percentiles; the histogram keeps no raw values. */
+  @Override
+  public long[] getValues() {
+    return new long[] {
+      histogram.getMinValue(),
+      histogram.getValueAtPercentile(50.0),
+      histogram.getValueAtPercentile(99.0),
+      histogram.getValueAtPercentile(99.9),
+      histogram.getMaxValue()
+    };
+  }
+
+  @Override
+  public int size() {
+    return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+  }
+
+  @Override
+  public long getMax() {
+    return histogram.getMaxValue();
+  }
+
+  @Override
+  public double getMean() {
+    return histogram.getMean();
+  }
+
+  @Override
+  public long getMin() {
+    return histogram.getMinValue();
+  }
+
+  @Override
+  public double getStdDev() {
+    return histogram.getStdDeviation();
+  }
+
+  @Override
+  public void dump(OutputStream output) {
+    histogram.outputPercentileDistribution(new PrintStream(output), 1.0);
+  }
+}
@@ -0,0 +1,117 @@
+package metrics;
+
+import com.codahale.metrics.CsvReporter;
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Slf4jReporter;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Metrics;
+import org.apache.log4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The process-wide metric registry. It holds the driver's own {@link Metrics} under {@code
+ * driver.*}, per-table request latency, timeouts and errors under {@code cql.<table>.*}, load
+ * progress under {@code load.<table>.*} and report durations under {@code report.*}. Reporters
+ * write it to the log, to CSV files and to JMX.
+ */
+public class Instrumentation {
+
+  private static final Logger LOGGER = Logger.getLogger(Instrumentation.class);
+
+  public static final long REPORT_PERIOD_SECONDS = 10;
+  public static final String CSV_DIRECTORY = "metrics";
+  public static final String JMX_DOMAIN = "sntask5";
+
+  private static final String DRIVER_PREFIX = "driver";
+  private static final MetricRegistry REGISTRY = new MetricRegistry();
+  private static final StatementLatencyTracker TRACKER = new StatementLatencyTracker(REGISTRY);
+
+  private static final List<ScheduledReporter> scheduledReporters = new ArrayList<>();
+  private static JmxReporter jmxReporter;
+
+  private Instrumentation() {}
+
+  public static MetricRegistry registry() {
+    return REGISTRY;
+  }
+
+  /**
+   * Tracks every request of {@code cluster} and exposes its driver metrics. Replaces the driver
+   * metrics of a previously registered cluster.
+   */
+  public static synchronized void register(Cluster cluster) {
+    cluster.register(TRACKER);
+    Metrics driverMetrics = cluster.getMetrics();
+    if (driverMetrics != null) {
+      REGISTRY.removeMatching((name, metric) -> name.startsWith(DRIVER_PREFIX + "."));
+      REGISTRY.register(DRIVER_PREFIX, driverMetrics.getRegistry());
+    }
+  }
+
+  public static WriterMetrics writer(String tableName) {
+    return new WriterMetrics(REGISTRY, tableName);
+  }
+
+  public static Timer report(String reportName) {
+    return REGISTRY.timer(
+        MetricRegistry.name("report", reportName), () -> new Timer(new HdrReservoir()));
+  }
+
+  /** Starts the log and CSV reporters every {@value #REPORT_PERIOD_SECONDS} s, and JMX. */
+  public static synchronized void startReporters() {
+    if (jmxReporter != null) {
+      return;
+    }
+    File csvDirectory = new File(CSV_DIRECTORY);
+    if (!csvDirectory.isDirectory() && !csvDirectory.mkdirs()) {
+      LOGGER.error("Cannot create metrics directory " + csvDirectory.getAbsolutePath());
+    } else {
+      scheduledReporters.add(
+          CsvReporter.forRegistry(REGISTRY)
+              .formatFor(Locale.US)
+              .convertRatesTo(TimeUnit.SECONDS)
+              .convertDurationsTo(TimeUnit.MILLISECONDS)
+              .build(csvDirectory));
+    }
+    scheduledReporters.add(
+        Slf4jReporter.forRegistry(REGISTRY)
+            .outputTo(LoggerFactory.getLogger(Instrumentation.class))
+            .convertRatesTo(TimeUnit.SECONDS)
+            .convertDurationsTo(TimeUnit.MILLISECONDS)
+            .build());
+    scheduledReporters.forEach(
+        reporter -> reporter.start(REPORT_PERIOD_SECONDS, TimeUnit.SECONDS));
+
+    jmxReporter =
+        JmxReporter.forRegistry(REGISTRY)
+            .inDomain(JMX_DOMAIN)
+            .convertRatesTo(TimeUnit.SECONDS)
+            .convertDurationsTo(TimeUnit.MILLISECONDS)
+            .build();
+    jmxReporter.start();
+  }
+
+  /** Writes one last report and stops all reporters. */
+  public static synchronized void stopReporters() {
+    if (jmxReporter == null) {
+      return;
+    }
+    scheduledReporters.forEach(
+        reporter -> {
+          reporter.report();
+          reporter.stop();
+        });
+    scheduledReporters.clear();
+    jmxReporter.stop();
+    jmxReporter = null;
+  }
+}
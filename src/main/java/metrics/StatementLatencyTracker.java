@@ -0,0 +1,101 @@
+package metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.LatencyTracker;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Driver {@link LatencyTracker} that records every request the session sends, per table: a {@code
+ * cql.<table>.latency} timer for successful requests and {@code errors} and {@code timeouts}
+ * counters for failed ones. Retries are separate requests and are recorded separately.
+ */
+class StatementLatencyTracker implements LatencyTracker {
+
+  private static final Pattern TABLE =
+      Pattern.compile("(?:\\bFROM|\\bINTO|^\\s*UPDATE)\\s+([\\w.\"]+)", Pattern.CASE_INSENSITIVE);
+  private static final String UNKNOWN_TABLE = "other";
+
+  private final MetricRegistry registry;
+  private final Map<String, String> tablesByQuery = new ConcurrentHashMap<>();
+  private final Map<String, TableMetrics> tables = new ConcurrentHashMap<>();
+
+  StatementLatencyTracker(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+    TableMetrics metrics = tables.computeIfAbsent(tableOf(statement), TableMetrics::new);
+    if (exception == null) {
+      metrics.latency.update(newLatencyNanos, TimeUnit.NANOSECONDS);
+    } else if (isTimeout(exception)) {
+      metrics.timeouts.inc();
+    } else {
+      metrics.errors.inc();
+    }
+  }
+
+  @Override
+  public void onRegister(Cluster cluster) {}
+
+  @Override
+  public void onUnregister(Cluster cluster) {}
+
+  private String tableOf(Statement statement) {
+    if (statement instanceof BatchStatement) {
+      BatchStatement batch = (BatchStatement) statement;
+      return batch.size() == 0 ? UNKNOWN_TABLE : tableOf(batch.getStatements().iterator().next());
+    }
+    String query;
+    if (statement instanceof BoundStatement) {
+      query = ((BoundStatement) statement).preparedStatement().getQueryString();
+    } else if (statement instanceof RegularStatement) {
+      query = ((RegularStatement) statement).getQueryString();
+    } else {
+      return UNKNOWN_TABLE;
+    }
+    return tablesByQuery.computeIfAbsent(query, StatementLatencyTracker::parseTable);
+  }
+
+  private static String parseTable(String query) {
+    Matcher matcher = TABLE.matcher(query);
+    return matcher.find() ? matcher.group(1).replace("\"", "").toLowerCase() : UNKNOWN_TABLE;
+  }
+
+  private static boolean isTimeout(Exception exception) {
+    return exception instanceof OperationTimedOutException
+        || exception instanceof ReadTimeoutException
+        || exception instanceof WriteTimeoutException;
+  }
+
+  private class TableMetrics {
+    final Timer latency;
+    final Counter errors;
+    final Counter timeouts;
+
+    TableMetrics(String table) {
+      String prefix = MetricRegistry.name("cql", table);
+      latency =
+          registry.timer(
+              MetricRegistry.name(prefix, "latency"), () -> new Timer(new HdrReservoir()));
+      errors = registry.counter(MetricRegistry.name(prefix, "errors"));
+      timeouts = registry.counter(MetricRegistry.name(prefix, "timeouts"));
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Throughput and progress of one load: generated rows and completed statements per second,
+ * requests in flight and their adaptive limit, retries and statements that failed for good.
+ * Request latency and timeouts are recorded per table by the driver-level tracker, see {@link
+ * Instrumentation}.
+ */
+public class WriterMetrics {
+
+  private final MetricRegistry registry;
+  private final String prefix;
+  private final Meter rows;
+  private final Meter statements;
+  private final Counter inFlight;
+  private final Counter retries;
+  private final Counter failures;
+
+  WriterMetrics(MetricRegistry registry, String name) {
+    this.registry = registry;
+    this.prefix = MetricRegistry.name("load", name.replace(' ', '_'));
+    rows = registry.meter(MetricRegistry.name(prefix, "rows"));
+    statements = registry.meter(MetricRegistry.name(prefix, "statements"));
+    inFlight = registry.counter(MetricRegistry.name(prefix, "inFlight"));
+    retries = registry.counter(MetricRegistry.name(prefix, "retries"));
+    failures = registry.counter(MetricRegistry.name(prefix, "failures"));
+  }
+
+  /** Publishes {@code limit} as {@code concurrencyLimit}, replacing an earlier load's gauge. */
+  public void trackConcurrencyLimit(IntSupplier limit) {
+    String name = MetricRegistry.name(prefix, "concurrencyLimit");
+    registry.remove(name);
+    registry.register(name, (Gauge<Integer>) limit::getAsInt);
+  }
+
+  public void recordRow() {
+    rows.mark();
+  }
+
+  public void onSubmit() {
+    inFlight.inc();
+  }
+
+  public void onWritten() {
+    inFlight.dec();
+    statements.mark();
+  }
+
+  public void onRetry() {
+    retries.inc();
+  }
+
+  public void onFailed() {
+    inFlight.dec();
+    failures.inc();
+  }
+}
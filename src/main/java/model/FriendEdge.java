@@ -0,0 +1,43 @@
+package model;
+
+import java.util.Date;
+
+/** One edge of the friendship graph, as stored in {@code friends_by_user}. */
+public class FriendEdge {
+
+  private long userId;
+  private long friendId;
+  private Date since;
+
+  public FriendEdge() {}
+
+  public FriendEdge(long userId, long friendId, Date since) {
+    this.userId = userId;
+    this.friendId = friendId;
+    this.since = since;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(long userId) {
+    this.userId = userId;
+  }
+
+  public long getFriendId() {
+    return friendId;
+  }
+
+  public void setFriendId(long friendId) {
+    this.friendId = friendId;
+  }
+
+  public Date getSince() {
+    return since;
+  }
+
+  public void setSince(Date since) {
+    this.since = since;
+  }
+}
@@ -1,17 +1,16 @@
 package model;
 
 import java.util.Date;
-import java.util.List;
 
 public class Friendship {
 
   private long userId;
-  private List<Long> friendsIds;
+  private LongIdList friendsIds;
   private Date date;
 
   public Friendship() {}
 
-  public Friendship(long userId, List<Long> friendsIds, Date date) {
+  public Friendship(long userId, LongIdList friendsIds, Date date) {
     this.userId = userId;
     this.friendsIds = friendsIds;
     this.date = date;
@@ -25,11 +24,11 @@ public class Friendship {
     this.userId = userId;
   }
 
-  public List<Long> getFriendsIds() {
+  public LongIdList getFriendsIds() {
     return friendsIds;
   }
 
-  public void setFriendsIds(List<Long> friendsIds) {
+  public void setFriendsIds(LongIdList friendsIds) {
     this.friendsIds = friendsIds;
   }
 
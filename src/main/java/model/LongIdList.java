@@ -0,0 +1,73 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable list of ids backed by a {@code long[]}, used in place of {@code List<Long>} for the
+ * id collections of the model, which hold up to a thousand elements per row.
+ */
+public final class LongIdList {
+
+  private static final LongIdList EMPTY = new LongIdList(new long[0]);
+
+  private final long[] ids;
+
+  private LongIdList(long[] ids) {
+    this.ids = ids;
+  }
+
+  public static LongIdList empty() {
+    return EMPTY;
+  }
+
+  public static LongIdList of(long... ids) {
+    return ids.length == 0 ? EMPTY : new LongIdList(ids.clone());
+  }
+
+  /** Wraps {@code ids} without copying; the caller must not modify the array afterwards. */
+  public static LongIdList wrap(long[] ids) {
+    return ids.length == 0 ? EMPTY : new LongIdList(ids);
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public boolean isEmpty() {
+    return ids.length == 0;
+  }
+
+  public long get(int index) {
+    return ids[index];
+  }
+
+  public long[] toArray() {
+    return ids.clone();
+  }
+
+  public LongStream stream() {
+    return Arrays.stream(ids);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.equals(ids, ((LongIdList) o).ids);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(ids);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(ids);
+  }
+}
@@ -1,8 +1,6 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 public class User {
 
@@ -10,12 +8,12 @@ public class User {
   private String name;
   private String surname;
   private Date birthdate;
-  private List<Long> audioTracks;
-  private List<Long> movies;
+  private LongIdList audioTracks;
+  private LongIdList movies;
 
   public User() {
-    audioTracks = new ArrayList<>();
-    movies = new ArrayList<>();
+    audioTracks = LongIdList.empty();
+    movies = LongIdList.empty();
   }
 
   public User(
@@ -23,8 +21,8 @@ public class User {
       String name,
       String surname,
       Date birthdate,
-      List<Long> audioTracks,
-      List<Long> movies) {
+      LongIdList audioTracks,
+      LongIdList movies) {
     this.id = id;
     this.name = name;
     this.surname = surname;
@@ -65,19 +63,19 @@ public class User {
     this.birthdate = birthdate;
   }
 
-  public List<Long> getAudioTracks() {
+  public LongIdList getAudioTracks() {
     return audioTracks;
   }
 
-  public void setAudioTracks(List<Long> audioTracks) {
+  public void setAudioTracks(LongIdList audioTracks) {
     this.audioTracks = audioTracks;
   }
 
-  public List<Long> getMovies() {
+  public LongIdList getMovies() {
     return movies;
   }
 
-  public void setMovies(List<Long> movies) {
+  public void setMovies(LongIdList movies) {
     this.movies = movies;
   }
 
@@ -0,0 +1,72 @@
+package store;
+
+/** Counters of a {@link CatalogCache} at one point in time. */
+public class CacheStats {
+
+  private final long hits;
+  private final long misses;
+  private final long loads;
+  private final long evictions;
+  private final long expirations;
+  private final long weight;
+
+  CacheStats(long hits, long misses, long loads, long evictions, long expirations, long weight) {
+    this.hits = hits;
+    this.misses = misses;
+    this.loads = loads;
+    this.evictions = evictions;
+    this.expirations = expirations;
+    this.weight = weight;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Calls to the backing store, each one fetching a whole set of misses. */
+  public long getLoads() {
+    return loads;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  public long getExpirations() {
+    return expirations;
+  }
+
+  /** Total weight of the entries held when the stats were taken. */
+  public long getWeight() {
+    return weight;
+  }
+
+  public double getHitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 1.0 : (double) hits / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{"
+        + "hits="
+        + hits
+        + ", misses="
+        + misses
+        + ", hitRate="
+        + String.format("%.3f", getHitRate())
+        + ", loads="
+        + loads
+        + ", evictions="
+        + evictions
+        + ", expirations="
+        + expirations
+        + ", weight="
+        + weight
+        + '}';
+  }
+}
@@ -0,0 +1,113 @@
+package store;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import connection.DataLoader;
+import model.AudioTrack;
+import model.Movie;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link CatalogStore} on a table keyed by {@code id}. {@link #findAll} splits the ids into {@code
+ * IN} queries of up to {@link #MULTI_GET_SIZE} partitions, sends them all at once and then waits
+ * for them together, so 1,500 ids cost 15 requests instead of 1,500.
+ */
+public class CassandraCatalogStore<T> implements CatalogStore<T> {
+
+  public static final int MULTI_GET_SIZE = 100;
+
+  private static final String SELECT_MOVIE_CQL =
+      "SELECT id, title, country, year FROM sntask5.movies WHERE id ";
+  private static final String SELECT_AUDIO_TRACK_CQL =
+      "SELECT id, title, author, album, year FROM sntask5.audioTracks WHERE id ";
+
+  private final Session session;
+  private final PreparedStatement insert;
+  private final PreparedStatement select;
+  private final PreparedStatement selectIn;
+  private final Function<T, Object[]> values;
+  private final Function<Row, T> mapper;
+
+  private CassandraCatalogStore(
+      Session session,
+      String insertCql,
+      String selectCql,
+      Function<T, Object[]> values,
+      Function<Row, T> mapper) {
+    this.session = session;
+    this.insert = session.prepare(insertCql).setIdempotent(true);
+    this.select = session.prepare(selectCql + "= ?");
+    this.selectIn = session.prepare(selectCql + "IN ?");
+    this.values = values;
+    this.mapper = mapper;
+  }
+
+  public static CassandraCatalogStore<Movie> movies(Session session) {
+    return new CassandraCatalogStore<>(
+        session,
+        DataLoader.INSERT_MOVIE_CQL,
+        SELECT_MOVIE_CQL,
+        DataLoader::movieValues,
+        row ->
+            new Movie(
+                row.getLong(0),
+                row.getString(1),
+                row.getString(2),
+                new Date(row.getDate(3).getMillisSinceEpoch())));
+  }
+
+  public static CassandraCatalogStore<AudioTrack> audioTracks(Session session) {
+    return new CassandraCatalogStore<>(
+        session,
+        DataLoader.INSERT_AUDIO_TRACK_CQL,
+        SELECT_AUDIO_TRACK_CQL,
+        DataLoader::audioTrackValues,
+        row ->
+            new AudioTrack(
+                row.getLong(0),
+                row.getString(1),
+                row.getString(2),
+                row.getString(3),
+                new Date(row.getDate(4).getMillisSinceEpoch())));
+  }
+
+  @Override
+  public void save(T item) {
+    session.execute(insert.bind(values.apply(item)));
+  }
+
+  @Override
+  public T find(long id) {
+    Row row = session.execute(select.bind(id)).one();
+    return row == null ? null : mapper.apply(row);
+  }
+
+  @Override
+  public Map<Long, T> findAll(long[] ids) {
+    List<ResultSetFuture> reads = new ArrayList<>();
+    for (int from = 0; from < ids.length; from += MULTI_GET_SIZE) {
+      int to = Math.min(ids.length, from + MULTI_GET_SIZE);
+      List<Long> chunk = new ArrayList<>(to - from);
+      for (int i = from; i < to; i++) {
+        chunk.add(ids[i]);
+      }
+      reads.add(session.executeAsync(selectIn.bind(chunk).setFetchSize(MULTI_GET_SIZE)));
+    }
+
+    Map<Long, T> found = new HashMap<>();
+    for (ResultSetFuture read : reads) {
+      for (Row row : read.getUninterruptibly()) {
+        found.put(row.getLong(0), mapper.apply(row));
+      }
+    }
+    return found;
+  }
+}
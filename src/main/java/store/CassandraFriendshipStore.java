@@ -0,0 +1,104 @@
+package store;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import connection.DataLoader;
+import connection.DatabaseCreator;
+import connection.Months;
+import model.Friendship;
+import model.LongIdList;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link FriendshipStore} on {@code friendships}, with {@code friend_counts}, {@code
+ * friendships_by_month} and {@code friendship_max_by_month} written alongside every row. The row
+ * is inserted with {@code IF NOT EXISTS}, and the counters are only updated once it has been
+ * applied, so saving a user twice fails instead of counting their friends twice.
+ */
+public class CassandraFriendshipStore implements FriendshipStore {
+
+  private static final String INSERT_FRIENDSHIP_ONCE_CQL =
+      DataLoader.INSERT_FRIENDSHIP_CQL + " IF NOT EXISTS";
+  private static final String SELECT_FRIENDS_CQL =
+      "SELECT friendsIds FROM sntask5.friendships WHERE userId = ?";
+  private static final String UPDATE_FRIEND_COUNTS_CQL =
+      "UPDATE "
+          + DatabaseCreator.TABLE_NAME_FRIEND_COUNTS
+          + " SET friends = friends + ? WHERE userid = ?";
+  private static final String UPDATE_FRIENDSHIPS_BY_MONTH_CQL =
+      "UPDATE "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIPS_BY_MONTH
+          + " SET friendships = friendships + ? WHERE month = ?";
+  private static final String INSERT_FRIENDSHIP_MAX_CQL =
+      "INSERT INTO "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH
+          + " (month, friends) VALUES (?, ?)";
+  private static final String SELECT_FRIEND_COUNTS_CQL =
+      "SELECT userid, friends FROM " + DatabaseCreator.TABLE_NAME_FRIEND_COUNTS;
+  private static final String SELECT_MONTHLY_MAX_CQL =
+      "SELECT month, friends FROM "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH
+          + " PER PARTITION LIMIT 1";
+  private static final int FETCH_SIZE = 5_000;
+
+  private final Session session;
+  private final PreparedStatement insertFriendship;
+  private final PreparedStatement selectFriends;
+  private final PreparedStatement updateFriendCounts;
+  private final PreparedStatement updateFriendshipsByMonth;
+  private final PreparedStatement insertFriendshipMax;
+  private final PreparedStatement selectFriendCounts;
+  private final PreparedStatement selectMonthlyMax;
+
+  public CassandraFriendshipStore(Session session) {
+    this.session = session;
+    this.insertFriendship = session.prepare(INSERT_FRIENDSHIP_ONCE_CQL);
+    this.selectFriends = session.prepare(SELECT_FRIENDS_CQL);
+    this.updateFriendCounts = session.prepare(UPDATE_FRIEND_COUNTS_CQL);
+    this.updateFriendshipsByMonth = session.prepare(UPDATE_FRIENDSHIPS_BY_MONTH_CQL);
+    this.insertFriendshipMax = session.prepare(INSERT_FRIENDSHIP_MAX_CQL).setIdempotent(true);
+    this.selectFriendCounts = session.prepare(SELECT_FRIEND_COUNTS_CQL);
+    this.selectMonthlyMax = session.prepare(SELECT_MONTHLY_MAX_CQL);
+  }
+
+  @Override
+  public void save(Friendship friendship) {
+    long friends = friendship.getFriendsIds().size();
+    int month = Months.month(friendship.getDate().getTime());
+    if (!session.execute(insertFriendship.bind(DataLoader.friendshipValues(friendship)))
+        .wasApplied()) {
+      throw new IllegalStateException(
+          "Friendship row of user " + friendship.getUserId() + " already saved");
+    }
+    List<ResultSetFuture> writes =
+        Arrays.asList(
+            session.executeAsync(updateFriendCounts.bind(friends, friendship.getUserId())),
+            session.executeAsync(updateFriendshipsByMonth.bind(friends, month)),
+            session.executeAsync(insertFriendshipMax.bind(month, (int) friends)));
+    writes.forEach(ResultSetFuture::getUninterruptibly);
+  }
+
+  @Override
+  public LongIdList friends(long userId) {
+    Row row = session.execute(selectFriends.bind(userId)).one();
+    return row == null || row.isNull(0) ? LongIdList.empty() : row.get(0, LongIdList.class);
+  }
+
+  @Override
+  public void forEachFriendCount(FriendCountConsumer consumer) {
+    for (Row row : session.execute(selectFriendCounts.bind().setFetchSize(FETCH_SIZE))) {
+      consumer.accept(row.getLong(0), (int) row.getLong(1));
+    }
+  }
+
+  @Override
+  public void forEachMonthlyMax(MonthlyMaxConsumer consumer) {
+    for (Row row : session.execute(selectMonthlyMax.bind().setFetchSize(FETCH_SIZE))) {
+      consumer.accept(row.getInt(0), row.getInt(1));
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package store;
+
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import connection.DataLoader;
+import model.Message;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link MessageStore} on {@code messages}, with the {@code messages_by_user} inbox and the {@code
+ * messages_by_day} counter written alongside every message. The message is inserted with {@code IF
+ * NOT EXISTS}, and the inbox and counter are only written once it has been applied, so saving a
+ * message twice fails instead of counting it twice.
+ */
+public class CassandraMessageStore implements MessageStore {
+
+  private static final String INSERT_MESSAGE_ONCE_CQL =
+      DataLoader.INSERT_MESSAGE_CQL + " IF NOT EXISTS";
+  private static final String UPDATE_MESSAGES_BY_DAY_CQL =
+      "UPDATE sntask5.messages_by_day SET messages = messages + 1 WHERE date = ?";
+  private static final String SELECT_MESSAGES_BY_DAY_CQL =
+      "SELECT date, messages FROM sntask5.messages_by_day";
+  private static final int FETCH_SIZE = 5_000;
+
+  private final Session session;
+  private final PreparedStatement insertMessage;
+  private final PreparedStatement insertMessageByUser;
+  private final PreparedStatement updateMessagesByDay;
+  private final PreparedStatement selectMessagesByDay;
+  private final InboxReader inboxReader;
+
+  public CassandraMessageStore(Session session) {
+    this.session = session;
+    this.insertMessage = session.prepare(INSERT_MESSAGE_ONCE_CQL);
+    this.insertMessageByUser =
+        session.prepare(DataLoader.INSERT_MESSAGE_BY_USER_CQL).setIdempotent(true);
+    this.updateMessagesByDay = session.prepare(UPDATE_MESSAGES_BY_DAY_CQL);
+    this.selectMessagesByDay = session.prepare(SELECT_MESSAGES_BY_DAY_CQL);
+    this.inboxReader = new InboxReader(session);
+  }
+
+  @Override
+  public void save(Message message) {
+    if (!session.execute(insertMessage.bind(DataLoader.messageValues(message))).wasApplied()) {
+      throw new IllegalStateException("Message " + message.getId() + " already saved");
+    }
+    List<ResultSetFuture> writes =
+        Arrays.asList(
+            session.executeAsync(
+                insertMessageByUser.bind(DataLoader.messageByUserValues(message))),
+            session.executeAsync(
+                updateMessagesByDay.bind(
+                    LocalDate.fromMillisSinceEpoch(message.getDate().getTime()))));
+    writes.forEach(ResultSetFuture::getUninterruptibly);
+  }
+
+  @Override
+  public void forEachDailyCount(DayCountConsumer consumer) {
+    for (Row row : session.execute(selectMessagesByDay.bind().setFetchSize(FETCH_SIZE))) {
+      consumer.accept(row.getDate(0).getDaysSinceEpoch(), row.getLong(1));
+    }
+  }
+
+  @Override
+  public List<Message> inbox(long userId, int newestMonth, int oldestMonth, int limit) {
+    return inboxReader.latest(userId, newestMonth, oldestMonth, limit);
+  }
+}
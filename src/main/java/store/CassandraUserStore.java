@@ -0,0 +1,58 @@
+package store;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import connection.DataLoader;
+import model.LongIdList;
+import model.User;
+
+import java.util.Date;
+
+/** {@link UserStore} on the {@code users} table. */
+public class CassandraUserStore implements UserStore {
+
+  private static final String SELECT_USER_CQL =
+      "SELECT id, name, surname, birthdate, movies, audioTracks FROM sntask5.users WHERE id = ?";
+  private static final String SELECT_MOVIE_COUNT_CQL =
+      "SELECT movie_count FROM sntask5.users WHERE id = ?";
+
+  private final Session session;
+  private final PreparedStatement insertUser;
+  private final PreparedStatement selectUser;
+  private final PreparedStatement selectMovieCount;
+
+  public CassandraUserStore(Session session) {
+    this.session = session;
+    this.insertUser = session.prepare(DataLoader.INSERT_USER_CQL).setIdempotent(true);
+    this.selectUser = session.prepare(SELECT_USER_CQL);
+    this.selectMovieCount = session.prepare(SELECT_MOVIE_COUNT_CQL);
+  }
+
+  @Override
+  public void save(User user) {
+    session.execute(insertUser.bind(DataLoader.userValues(user)));
+  }
+
+  @Override
+  public User find(long id) {
+    Row row = session.execute(selectUser.bind(id)).one();
+    if (row == null) {
+      return null;
+    }
+    User user = new User();
+    user.setId(row.getLong(0));
+    user.setName(row.getString(1));
+    user.setSurname(row.getString(2));
+    user.setBirthdate(new Date(row.getDate(3).getMillisSinceEpoch()));
+    user.setMovies(row.get(4, LongIdList.class));
+    user.setAudioTracks(row.get(5, LongIdList.class));
+    return user;
+  }
+
+  @Override
+  public int movieCount(long id) {
+    Row row = session.execute(selectMovieCount.bind(id)).one();
+    return row == null || row.isNull(0) ? -1 : row.getInt(0);
+  }
+}
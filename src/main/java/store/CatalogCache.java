@@ -0,0 +1,286 @@
+package store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Read-through {@link CatalogStore} bounded by total entry weight, with W-TinyLFU eviction: new
+ * entries enter a small LRU window, and an entry leaving the window only displaces the oldest
+ * probationary entry of the main segmented LRU if a {@link FrequencySketch} has seen it more often.
+ * Entries expire {@code timeToLive} after they were loaded. All misses of one {@link #findAll} call
+ * are fetched with a single {@link CatalogStore#findAll} on the backing store. The sketch is
+ * sized up front for {@code maximumEntries}, an upper estimate of how many entries fit.
+ */
+public class CatalogCache<T> implements CatalogStore<T> {
+
+  private static final int WINDOW_PERCENT = 1;
+  private static final int PROTECTED_PERCENT = 80;
+
+  private final CatalogStore<T> store;
+  private final ToLongFunction<T> idOf;
+  private final ToIntFunction<T> weigher;
+  private final long timeToLiveNanos;
+  private final LongSupplier nanoClock;
+
+  private final long maximumWeight;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+
+  private final Map<Long, Node<T>> nodes = new HashMap<>();
+  private final FrequencySketch sketch;
+  private final Queue<T> window = new Queue<>();
+  private final Queue<T> probation = new Queue<>();
+  private final Queue<T> protectedQueue = new Queue<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private long evictions;
+  private long expirations;
+
+  public CatalogCache(
+      CatalogStore<T> store,
+      ToLongFunction<T> idOf,
+      long maximumWeight,
+      int maximumEntries,
+      ToIntFunction<T> weigher,
+      long timeToLive,
+      TimeUnit unit) {
+    this(
+        store,
+        idOf,
+        maximumWeight,
+        maximumEntries,
+        weigher,
+        unit.toNanos(timeToLive),
+        System::nanoTime);
+  }
+
+  CatalogCache(
+      CatalogStore<T> store,
+      ToLongFunction<T> idOf,
+      long maximumWeight,
+      int maximumEntries,
+      ToIntFunction<T> weigher,
+      long timeToLiveNanos,
+      LongSupplier nanoClock) {
+    if (maximumWeight <= 0) {
+      throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+    }
+    this.store = store;
+    this.idOf = idOf;
+    this.weigher = weigher;
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.nanoClock = nanoClock;
+    this.maximumWeight = maximumWeight;
+    this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+    this.protectedMaximum = (maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+    this.sketch = new FrequencySketch(maximumEntries);
+  }
+
+  /** Writes through to the backing store and caches the item. */
+  @Override
+  public void save(T item) {
+    store.save(item);
+    long now = nanoClock.getAsLong();
+    synchronized (this) {
+      cache(idOf.applyAsLong(item), item, now);
+    }
+  }
+
+  @Override
+  public T find(long id) {
+    return findAll(new long[] {id}).get(id);
+  }
+
+  @Override
+  public Map<Long, T> findAll(long[] ids) {
+    Map<Long, T> found = new HashMap<>();
+    long[] missing = new long[ids.length];
+    int numberOfMissing = 0;
+    long now = nanoClock.getAsLong();
+
+    synchronized (this) {
+      for (long id : ids) {
+        sketch.increment(id);
+        T item = lookup(id, now);
+        if (item != null) {
+          found.put(id, item);
+        } else {
+          missing[numberOfMissing++] = id;
+        }
+      }
+    }
+    hits.add(ids.length - numberOfMissing);
+    misses.add(numberOfMissing);
+    if (numberOfMissing == 0) {
+      return found;
+    }
+
+    long[] toLoad = Arrays.copyOf(missing, numberOfMissing);
+    Map<Long, T> loaded = store.findAll(toLoad);
+    loads.increment();
+    long loadedAt = nanoClock.getAsLong();
+    synchronized (this) {
+      loaded.forEach((id, item) -> cache(id, item, loadedAt));
+    }
+    found.putAll(loaded);
+    return found;
+  }
+
+  public synchronized CacheStats stats() {
+    long weight = window.weight + probation.weight + protectedQueue.weight;
+    return new CacheStats(hits.sum(), misses.sum(), loads.sum(), evictions, expirations, weight);
+  }
+
+  public synchronized int size() {
+    return nodes.size();
+  }
+
+  private T lookup(long id, long now) {
+    Node<T> node = nodes.get(id);
+    if (node == null) {
+      return null;
+    }
+    if (now - node.loadedAt >= timeToLiveNanos) {
+      remove(node);
+      expirations++;
+      return null;
+    }
+    onHit(node);
+    return node.item;
+  }
+
+  private void onHit(Node<T> node) {
+    if (node.queue == probation) {
+      probation.unlink(node);
+      protectedQueue.addNewest(node);
+      while (protectedQueue.weight > protectedMaximum) {
+        Node<T> demoted = protectedQueue.oldest();
+        protectedQueue.unlink(demoted);
+        probation.addNewest(demoted);
+      }
+    } else {
+      node.queue.moveToNewest(node);
+    }
+  }
+
+  private void cache(long id, T item, long now) {
+    Node<T> existing = nodes.remove(id);
+    if (existing != null) {
+      existing.queue.unlink(existing);
+    }
+    int weight = weigher.applyAsInt(item);
+    if (weight > maximumWeight) {
+      return;
+    }
+
+    Node<T> node = new Node<>(id, item, weight, now);
+    nodes.put(id, node);
+    window.addNewest(node);
+    while (window.weight > windowMaximum) {
+      Node<T> candidate = window.oldest();
+      window.unlink(candidate);
+      probation.addNewest(candidate);
+    }
+    evictWhileOverweight();
+  }
+
+  /**
+   * Pits the newest probationary entry (the last one out of the window) against the oldest and
+   * evicts whichever the sketch has seen less often; the incumbent wins ties.
+   */
+  private void evictWhileOverweight() {
+    while (window.weight + probation.weight + protectedQueue.weight > maximumWeight) {
+      Node<T> victim = probation.oldest();
+      Node<T> candidate = probation.newest();
+      if (victim == null) {
+        victim = protectedQueue.oldest() != null ? protectedQueue.oldest() : window.oldest();
+        candidate = victim;
+      }
+      boolean admit =
+          candidate != victim && sketch.frequency(candidate.id) > sketch.frequency(victim.id);
+      remove(admit ? victim : candidate);
+      evictions++;
+    }
+  }
+
+  private void remove(Node<T> node) {
+    node.queue.unlink(node);
+    nodes.remove(node.id);
+  }
+
+  private static class Node<T> {
+    final long id;
+    final T item;
+    final int weight;
+    final long loadedAt;
+    Queue<T> queue;
+    Node<T> older;
+    Node<T> newer;
+
+    Node(long id, T item, int weight, long loadedAt) {
+      this.id = id;
+      this.item = item;
+      this.weight = weight;
+      this.loadedAt = loadedAt;
+    }
+  }
+
+  /** Doubly linked LRU list that tracks the total weight of its nodes. */
+  private static class Queue<T> {
+    private Node<T> oldest;
+    private Node<T> newest;
+    private long weight;
+
+    Node<T> oldest() {
+      return oldest;
+    }
+
+    Node<T> newest() {
+      return newest;
+    }
+
+    void addNewest(Node<T> node) {
+      node.queue = this;
+      node.older = newest;
+      node.newer = null;
+      if (newest == null) {
+        oldest = node;
+      } else {
+        newest.newer = node;
+      }
+      newest = node;
+      weight += node.weight;
+    }
+
+    void moveToNewest(Node<T> node) {
+      if (node != newest) {
+        unlink(node);
+        addNewest(node);
+      }
+    }
+
+    void unlink(Node<T> node) {
+      if (node.older == null) {
+        oldest = node.newer;
+      } else {
+        node.older.newer = node.newer;
+      }
+      if (node.newer == null) {
+        newest = node.older;
+      } else {
+        node.newer.older = node.older;
+      }
+      node.older = null;
+      node.newer = null;
+      weight -= node.weight;
+    }
+  }
+}
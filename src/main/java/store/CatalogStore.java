@@ -0,0 +1,15 @@
+package store;
+
+import java.util.Map;
+
+/** Reference items looked up by id, such as movies and audio tracks. */
+public interface CatalogStore<T> {
+
+  void save(T item);
+
+  /** The item, or {@code null} if there is none with this id. */
+  T find(long id);
+
+  /** The items that exist among {@code ids}, keyed by id, fetched together. */
+  Map<Long, T> findAll(long[] ids);
+}
@@ -0,0 +1,82 @@
+package store;
+
+/**
+ * Count-min sketch of 4-bit counters, sixteen to a {@code long}, estimating how often each key was
+ * seen recently. Every counter is halved once the sketch has recorded ten times as many keys as it
+ * is wide, so old popularity fades.
+ */
+class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+  private static final int MIN_WIDTH = 16;
+  private static final int MAX_WIDTH = 1 << 24;
+
+  private final long[] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Sized once for up to {@code maximumKeys} tracked keys; it is never resized, as that would drop
+   * the history admission decisions rely on.
+   */
+  FrequencySketch(int maximumKeys) {
+    int width =
+        Math.min(MAX_WIDTH, Math.max(MIN_WIDTH, Integer.highestOneBit(maximumKeys - 1) << 1));
+    table = new long[width];
+    mask = width - 1;
+    sampleSize = 10 * width;
+  }
+
+  int frequency(long key) {
+    long hash = spread(key);
+    int start = (int) (hash & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int offset = (start + i) << 2;
+      int count = (int) ((table[indexOf(hash, i)] >>> offset) & MAX_COUNT);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  void increment(long key) {
+    long hash = spread(key);
+    int start = (int) (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      int offset = (start + i) << 2;
+      if (((table[index] >>> offset) & MAX_COUNT) != MAX_COUNT) {
+        table[index] += 1L << offset;
+        added = true;
+      }
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(long hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & mask;
+  }
+
+  private static long spread(long key) {
+    long z = key * 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,34 @@
+package store;
+
+import model.Friendship;
+import model.LongIdList;
+
+/** Friendship rows, one per user, and the aggregates the reports read from them. */
+public interface FriendshipStore {
+
+  /**
+   * Saves the friendship row of a user that has none yet; the aggregates count every row once.
+   *
+   * @throws IllegalStateException if the user already has a friendship row
+   */
+  void save(Friendship friendship);
+
+  /** Friend ids of {@code userId}, empty if the user has no friendship row. */
+  LongIdList friends(long userId);
+
+  /** Visits every user with a friendship row and their number of friends. */
+  void forEachFriendCount(FriendCountConsumer consumer);
+
+  /** Visits every month ({@code yyyymm}) with friendships and its largest friendship row. */
+  void forEachMonthlyMax(MonthlyMaxConsumer consumer);
+
+  @FunctionalInterface
+  interface FriendCountConsumer {
+    void accept(long userId, int friends);
+  }
+
+  @FunctionalInterface
+  interface MonthlyMaxConsumer {
+    void accept(int month, int friends);
+  }
+}
@@ -0,0 +1,79 @@
+package store;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import connection.DatabaseCreator;
+import connection.Months;
+import model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a user's inbox from {@code messages_by_user}, newest first. The table holds one partition
+ * per month, so the reader walks back month by month, querying the next older month while it is
+ * still consuming the current one.
+ */
+public class InboxReader {
+
+  private static final String SELECT_INBOX_MONTH_CQL =
+      "SELECT messageid, senderid, text, sent FROM "
+          + DatabaseCreator.TABLE_NAME_MESSAGES_BY_USER
+          + " WHERE userid = ? AND month = ? LIMIT ?";
+  private static final int MAX_FETCH_SIZE = 5_000;
+
+  private final Session session;
+  private final PreparedStatement selectMonth;
+
+  public InboxReader(Session session) {
+    this.session = session;
+    this.selectMonth = session.prepare(SELECT_INBOX_MONTH_CQL);
+  }
+
+  /**
+   * Up to {@code limit} messages received by {@code userId}, starting in {@code newestMonth} and
+   * going back no further than {@code oldestMonth}. Months are {@code yyyymm}.
+   */
+  public List<Message> latest(long userId, int newestMonth, int oldestMonth, int limit) {
+    List<Message> messages = new ArrayList<>(Math.min(limit, MAX_FETCH_SIZE));
+    if (limit < 1 || newestMonth < oldestMonth) {
+      return messages;
+    }
+
+    int month = newestMonth;
+    ResultSetFuture current = query(userId, month, limit);
+    while (true) {
+      int previous = Months.previousMonth(month);
+      ResultSetFuture next = previous >= oldestMonth ? query(userId, previous, limit) : null;
+
+      ResultSet resultSet = current.getUninterruptibly();
+      for (Row row : resultSet) {
+        if (messages.size() == limit) {
+          break;
+        }
+        messages.add(
+            new Message(
+                row.getLong(0), row.getLong(1), userId, row.getString(2), row.getTimestamp(3)));
+      }
+
+      if (next == null || messages.size() == limit) {
+        if (next != null) {
+          next.cancel(true);
+        }
+        return messages;
+      }
+      current = next;
+      month = previous;
+    }
+  }
+
+  private ResultSetFuture query(long userId, int month, int limit) {
+    return session.executeAsync(
+        selectMonth
+            .bind(userId, month, limit)
+            .setFetchSize(Math.min(limit, MAX_FETCH_SIZE)));
+  }
+}
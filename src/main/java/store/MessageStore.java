@@ -0,0 +1,30 @@
+package store;
+
+import model.Message;
+
+import java.util.List;
+
+/** Messages, with the per-day counts and per-recipient inboxes derived from them. */
+public interface MessageStore {
+
+  /**
+   * Saves a message that has not been saved yet; the daily counts count every message once.
+   *
+   * @throws IllegalStateException if a message with the same id was already saved
+   */
+  void save(Message message);
+
+  /** Visits every day (days since epoch, UTC) that has messages, with its message count. */
+  void forEachDailyCount(DayCountConsumer consumer);
+
+  /**
+   * Up to {@code limit} messages received by {@code userId}, newest first, sent within {@code
+   * newestMonth} and {@code oldestMonth} ({@code yyyymm}, inclusive).
+   */
+  List<Message> inbox(long userId, int newestMonth, int oldestMonth, int limit);
+
+  @FunctionalInterface
+  interface DayCountConsumer {
+    void accept(int epochDay, long messages);
+  }
+}
@@ -0,0 +1,112 @@
+package store;
+
+import com.datastax.driver.core.Session;
+import model.AudioTrack;
+import model.Movie;
+
+import java.util.concurrent.TimeUnit;
+
+/** One backend's stores for every entity, optionally with cached catalog reads. */
+public class Stores {
+
+  /** Object header, fields and {@code Date} of a catalog item, without its strings. */
+  private static final int ITEM_OVERHEAD = 64;
+
+  private static final int STRING_OVERHEAD = 40;
+
+  private final UserStore users;
+  private final CatalogStore<Movie> movies;
+  private final CatalogStore<AudioTrack> audioTracks;
+  private final MessageStore messages;
+  private final FriendshipStore friendships;
+
+  public Stores(
+      UserStore users,
+      CatalogStore<Movie> movies,
+      CatalogStore<AudioTrack> audioTracks,
+      MessageStore messages,
+      FriendshipStore friendships) {
+    this.users = users;
+    this.movies = movies;
+    this.audioTracks = audioTracks;
+    this.messages = messages;
+    this.friendships = friendships;
+  }
+
+  /** Stores on the {@code sntask5} tables, which must already exist. */
+  public static Stores cassandra(Session session) {
+    return new Stores(
+        new CassandraUserStore(session),
+        CassandraCatalogStore.movies(session),
+        CassandraCatalogStore.audioTracks(session),
+        new CassandraMessageStore(session),
+        new CassandraFriendshipStore(session));
+  }
+
+  /**
+   * The same stores, with movie and audio-track reads going through a {@link CatalogCache} each.
+   * {@code maximumBytes} bounds each cache by the estimated heap size of its items.
+   */
+  public Stores withCatalogCache(long maximumBytes, long timeToLive, TimeUnit unit) {
+    return new Stores(
+        users,
+        new CatalogCache<>(
+            movies,
+            Movie::getId,
+            maximumBytes,
+            maximumEntries(maximumBytes),
+            Stores::estimatedSize,
+            timeToLive,
+            unit),
+        new CatalogCache<>(
+            audioTracks,
+            AudioTrack::getId,
+            maximumBytes,
+            maximumEntries(maximumBytes),
+            Stores::estimatedSize,
+            timeToLive,
+            unit),
+        messages,
+        friendships);
+  }
+
+  public UserStore users() {
+    return users;
+  }
+
+  public CatalogStore<Movie> movies() {
+    return movies;
+  }
+
+  public CatalogStore<AudioTrack> audioTracks() {
+    return audioTracks;
+  }
+
+  public MessageStore messages() {
+    return messages;
+  }
+
+  public FriendshipStore friendships() {
+    return friendships;
+  }
+
+  private static int estimatedSize(Movie movie) {
+    return ITEM_OVERHEAD + chars(movie.getTitle()) + chars(movie.getCountry());
+  }
+
+  private static int estimatedSize(AudioTrack audioTrack) {
+    return ITEM_OVERHEAD
+        + chars(audioTrack.getTitle())
+        + chars(audioTrack.getAuthor())
+        + chars(audioTrack.getAlbum());
+  }
+
+  /** Every estimated size is at least {@link #ITEM_OVERHEAD}, so no more entries than this fit. */
+  private static int maximumEntries(long maximumBytes) {
+    return (int) Math.min(Integer.MAX_VALUE, maximumBytes / ITEM_OVERHEAD);
+  }
+
+  private static int chars(String value) {
+    return value == null ? 0 : STRING_OVERHEAD + 2 * value.length();
+  }
+}
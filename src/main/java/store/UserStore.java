@@ -0,0 +1,15 @@
+package store;
+
+import model.User;
+
+/** Users by id. */
+public interface UserStore {
+
+  void save(User user);
+
+  /** The user, or {@code null} if there is none with this id. */
+  User find(long id);
+
+  /** Number of movies the user watched, or {@code -1} if there is no such user. */
+  int movieCount(long id);
+}
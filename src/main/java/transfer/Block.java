@@ -0,0 +1,55 @@
+package transfer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/** Growable byte buffer for encoded rows that can be handed to a channel without a copy. */
+class Block extends ByteArrayOutputStream {
+
+  private int rows;
+
+  Block(int initialCapacity) {
+    super(initialCapacity);
+  }
+
+  /** Big-endian, as {@link ByteBuffer} reads it back. */
+  void writeInt(int value) {
+    ensureSpace(Integer.BYTES);
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      buf[count++] = (byte) (value >>> shift);
+    }
+  }
+
+  void writeLong(long value) {
+    ensureSpace(Long.BYTES);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      buf[count++] = (byte) (value >>> shift);
+    }
+  }
+
+  void endRow() {
+    rows++;
+  }
+
+  int rows() {
+    return rows;
+  }
+
+  /** The encoded bytes, sharing this block's array. */
+  ByteBuffer asByteBuffer() {
+    return ByteBuffer.wrap(buf, 0, count);
+  }
+
+  void clear() {
+    reset();
+    rows = 0;
+  }
+
+  private void ensureSpace(int bytes) {
+    if (count + bytes > buf.length) {
+      byte[] grown = new byte[Math.max(buf.length * 2, count + bytes)];
+      System.arraycopy(buf, 0, grown, 0, count);
+      buf = grown;
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package transfer;
+
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.Row;
+import model.LongIdList;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * The CQL column types of the exported tables, with their Java value, binary and CSV forms. Binary
+ * values are big-endian; text is length-prefixed UTF-8. In CSV, dates are {@code yyyy-mm-dd},
+ * timestamps ISO-8601 instants and id lists space-separated.
+ *
+ * <p>Binary headers identify each type by its {@link #code()}, which must never change or be
+ * reused, so constants can be added or reordered without breaking existing files.
+ */
+public enum ColumnType {
+  BIGINT(1) {
+    @Override
+    Object read(Row row, int column) {
+      return row.getLong(column);
+    }
+
+    @Override
+    void encode(Object value, Block out) {
+      out.writeLong((Long) value);
+    }
+
+    @Override
+    Object decode(ByteBuffer in) {
+      return in.getLong();
+    }
+
+    @Override
+    Object parse(String field) {
+      return Long.parseLong(field);
+    }
+  },
+
+  INT(2) {
+    @Override
+    Object read(Row row, int column) {
+      return row.getInt(column);
+    }
+
+    @Override
+    void encode(Object value, Block out) {
+      out.writeInt((Integer) value);
+    }
+
+    @Override
+    Object decode(ByteBuffer in) {
+      return in.getInt();
+    }
+
+    @Override
+    Object parse(String field) {
+      return Integer.parseInt(field);
+    }
+  },
+
+  TEXT(3) {
+    @Override
+    Object read(Row row, int column) {
+      return row.getString(column);
+    }
+
+    @Override
+    void encode(Object value, Block out) {
+      byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    Object decode(ByteBuffer in) {
+      byte[] bytes = new byte[in.getInt()];
+      in.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    Object parse(String field) {
+      return field;
+    }
+  },
+
+  DATE(4) {
+    @Override
+    Object read(Row row, int column) {
+      return row.getDate(column);
+    }
+
+    @Override
+    void encode(Object value, Block out) {
+      out.writeInt(((LocalDate) value).getDaysSinceEpoch());
+    }
+
+    @Override
+    Object decode(ByteBuffer in) {
+      return LocalDate.fromDaysSinceEpoch(in.getInt());
+    }
+
+    @Override
+    Object parse(String field) {
+      return LocalDate.fromDaysSinceEpoch(
+          (int) java.time.LocalDate.parse(field).toEpochDay());
+    }
+  },
+
+  TIMESTAMP(5) {
+    @Override
+    Object read(Row row, int column) {
+      return row.getTimestamp(column);
+    }
+
+    @Override
+    void encode(Object value, Block out) {
+      out.writeLong(((Date) value).getTime());
+    }
+
+    @Override
+    Object decode(ByteBuffer in) {
+      return new Date(in.getLong());
+    }
+
+    @Override
+    String format(Object value) {
+      return ((Date) value).toInstant().toString();
+    }
+
+    @Override
+    Object parse(String field) {
+      return Date.from(Instant.parse(field));
+    }
+  },
+
+  BIGINT_LIST(6) {
+    @Override
+    Object read(Row row, int column) {
+      return row.get(column, LongIdList.class);
+    }
+
+    @Override
+    void encode(Object value, Block out) {
+      LongIdList ids = (LongIdList) value;
+      out.writeInt(ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        out.writeLong(ids.get(i));
+      }
+    }
+
+    @Override
+    Object decode(ByteBuffer in) {
+      long[] ids = new long[in.getInt()];
+      in.asLongBuffer().get(ids);
+      in.position(in.position() + ids.length * Long.BYTES);
+      return LongIdList.wrap(ids);
+    }
+
+    @Override
+    String format(Object value) {
+      LongIdList ids = (LongIdList) value;
+      StringBuilder field = new StringBuilder(ids.size() * 8);
+      for (int i = 0; i < ids.size(); i++) {
+        if (i > 0) {
+          field.append(' ');
+        }
+        field.append(ids.get(i));
+      }
+      return field.toString();
+    }
+
+    @Override
+    Object parse(String field) {
+      if (field.isEmpty()) {
+        return LongIdList.empty();
+      }
+      String[] parts = field.split(" ");
+      long[] ids = new long[parts.length];
+      for (int i = 0; i < parts.length; i++) {
+        ids[i] = Long.parseLong(parts[i]);
+      }
+      return LongIdList.wrap(ids);
+    }
+  };
+
+  private final byte code;
+
+  ColumnType(int code) {
+    this.code = (byte) code;
+  }
+
+  /** Stable identifier of this type in binary headers. */
+  byte code() {
+    return code;
+  }
+
+  /** The column's value, or {@code null} if it is not set. */
+  Object readOrNull(Row row, int column) {
+    return row.isNull(column) ? null : read(row, column);
+  }
+
+  abstract Object read(Row row, int column);
+
+  abstract void encode(Object value, Block out);
+
+  abstract Object decode(ByteBuffer in);
+
+  String format(Object value) {
+    return value.toString();
+  }
+
+  abstract Object parse(String field);
+}
@@ -0,0 +1,368 @@
+package transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * On-disk row formats. A file starts with a header naming its columns, followed by rows grouped
+ * into chunks that can be located without parsing the rows, so an import can map and decode the
+ * chunks of one file in parallel.
+ */
+public enum FileFormat {
+
+  /**
+   * Header: magic, table name, column count, then each column's name and {@link ColumnType}
+   * code. Rows come in blocks of {@code [payload bytes][row count][rows]}; a row is a bitmap of
+   * its null columns followed by the encoded values of the others.
+   */
+  BINARY("bin") {
+    @Override
+    void writeHeader(FileChannel channel, TableFormat table) throws IOException {
+      Block header = new Block(256);
+      header.writeInt(MAGIC);
+      ColumnType.TEXT.encode(table.getTable(), header);
+      header.writeInt(table.size());
+      for (int i = 0; i < table.size(); i++) {
+        ColumnType.TEXT.encode(table.getColumnNames().get(i), header);
+        header.write(table.type(i).code());
+      }
+      writeFully(channel, header.asByteBuffer());
+    }
+
+    @Override
+    long readHeader(FileChannel channel, TableFormat table) throws IOException {
+      ByteBuffer header = mapHeader(channel);
+      if (header.remaining() < Integer.BYTES || header.getInt() != MAGIC) {
+        throw new IOException("Not a binary table export");
+      }
+      String name = (String) ColumnType.TEXT.decode(header);
+      int columns = header.getInt();
+      List<String> names = new ArrayList<>();
+      List<Byte> types = new ArrayList<>();
+      for (int i = 0; i < columns; i++) {
+        names.add((String) ColumnType.TEXT.decode(header));
+        types.add(header.get());
+      }
+      checkColumns(name, names, table);
+      for (int i = 0; i < columns; i++) {
+        if (types.get(i) != table.type(i).code()) {
+          throw new IOException("Column types of " + name + " do not match the table");
+        }
+      }
+      return header.position();
+    }
+
+    @Override
+    void encode(Object[] row, TableFormat table, Block out) {
+      byte[] nulls = new byte[(row.length + 7) / 8];
+      for (int i = 0; i < row.length; i++) {
+        if (row[i] == null) {
+          nulls[i / 8] |= (byte) (1 << (i % 8));
+        }
+      }
+      out.write(nulls, 0, nulls.length);
+      for (int i = 0; i < row.length; i++) {
+        if (row[i] != null) {
+          table.type(i).encode(row[i], out);
+        }
+      }
+      out.endRow();
+    }
+
+    /** Prefixes the block with its length and row count in the same gathering write. */
+    @Override
+    void writeBlock(FileChannel channel, Block block) throws IOException {
+      ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+      blockHeader.putInt(block.size()).putInt(block.rows()).flip();
+      ByteBuffer[] buffers = {blockHeader, block.asByteBuffer()};
+      synchronized (channel) {
+        while (buffers[1].hasRemaining()) {
+          channel.write(buffers);
+        }
+      }
+    }
+
+    /** Hops from block header to block header; the rows themselves are not read. */
+    @Override
+    List<long[]> split(FileChannel channel, long dataStart, long chunkBytes) throws IOException {
+      List<long[]> chunks = new ArrayList<>();
+      ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+      long size = channel.size();
+      long chunkStart = dataStart;
+      long position = dataStart;
+      while (position < size) {
+        blockHeader.clear();
+        while (blockHeader.hasRemaining()) {
+          if (channel.read(blockHeader, position + blockHeader.position()) < 0) {
+            throw new IOException("Truncated block at offset " + position);
+          }
+        }
+        position += BLOCK_HEADER_BYTES + blockHeader.getInt(0);
+        if (position > size) {
+          throw new IOException("Truncated block ending at offset " + position);
+        }
+        if (position - chunkStart >= chunkBytes) {
+          chunks.add(new long[] {chunkStart, position});
+          chunkStart = position;
+        }
+      }
+      if (chunkStart < size) {
+        chunks.add(new long[] {chunkStart, size});
+      }
+      return chunks;
+    }
+
+    @Override
+    void decode(ByteBuffer chunk, TableFormat table, Consumer<Object[]> rows) {
+      byte[] nulls = new byte[(table.size() + 7) / 8];
+      while (chunk.hasRemaining()) {
+        chunk.getInt();
+        int count = chunk.getInt();
+        for (int r = 0; r < count; r++) {
+          chunk.get(nulls);
+          Object[] row = new Object[table.size()];
+          for (int i = 0; i < row.length; i++) {
+            if ((nulls[i / 8] & (1 << (i % 8))) == 0) {
+              row[i] = table.type(i).decode(chunk);
+            }
+          }
+          rows.accept(row);
+        }
+      }
+    }
+  },
+
+  /**
+   * RFC 4180 style CSV with a header line of column names. An empty field is {@code null}; an
+   * empty string or list is written as {@code ""}.
+   */
+  CSV("csv") {
+    @Override
+    void writeHeader(FileChannel channel, TableFormat table) throws IOException {
+      String header = String.join(",", table.getColumnNames()) + "\n";
+      writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    long readHeader(FileChannel channel, TableFormat table) throws IOException {
+      ByteBuffer header = mapHeader(channel);
+      int end = 0;
+      while (end < header.limit() && header.get(end) != '\n') {
+        end++;
+      }
+      if (end == header.limit()) {
+        throw new IOException("Missing CSV header line");
+      }
+      byte[] line = new byte[end];
+      header.get(line);
+      String columns = new String(line, StandardCharsets.UTF_8).trim();
+      List<String> names = new ArrayList<>();
+      for (String name : columns.split(",")) {
+        names.add(name.trim());
+      }
+      checkColumns(table.getTable(), names, table);
+      return end + 1;
+    }
+
+    @Override
+    void encode(Object[] row, TableFormat table, Block out) {
+      StringBuilder line = new StringBuilder(64);
+      for (int i = 0; i < row.length; i++) {
+        if (i > 0) {
+          line.append(',');
+        }
+        if (row[i] != null) {
+          appendField(line, table.type(i).format(row[i]));
+        }
+      }
+      byte[] bytes = line.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+      out.write(bytes, 0, bytes.length);
+      out.endRow();
+    }
+
+    @Override
+    void writeBlock(FileChannel channel, Block block) throws IOException {
+      synchronized (channel) {
+        writeFully(channel, block.asByteBuffer());
+      }
+    }
+
+    /**
+     * Scans the mapped file once for line ends outside quotes. This is a plain byte loop, much
+     * cheaper than the parsing that follows in parallel.
+     */
+    @Override
+    List<long[]> split(FileChannel channel, long dataStart, long chunkBytes) throws IOException {
+      List<long[]> chunks = new ArrayList<>();
+      long size = channel.size();
+      long chunkStart = dataStart;
+      boolean quoted = false;
+      for (long windowStart = dataStart; windowStart < size; windowStart += SCAN_WINDOW_BYTES) {
+        long windowSize = Math.min(SCAN_WINDOW_BYTES, size - windowStart);
+        MappedByteBuffer window =
+            channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+        for (int i = 0; i < windowSize; i++) {
+          byte b = window.get(i);
+          if (b == '"') {
+            quoted = !quoted;
+          } else if (b == '\n' && !quoted && windowStart + i + 1 - chunkStart >= chunkBytes) {
+            chunks.add(new long[] {chunkStart, windowStart + i + 1});
+            chunkStart = windowStart + i + 1;
+          }
+        }
+      }
+      if (chunkStart < size) {
+        chunks.add(new long[] {chunkStart, size});
+      }
+      return chunks;
+    }
+
+    @Override
+    void decode(ByteBuffer chunk, TableFormat table, Consumer<Object[]> rows) {
+      byte[] field = new byte[256];
+      Object[] row = new Object[table.size()];
+      int column = 0;
+      while (chunk.hasRemaining()) {
+        int length = 0;
+        boolean wasQuoted = chunk.get(chunk.position()) == '"';
+        boolean quoted = wasQuoted;
+        byte b = 0;
+        if (quoted) {
+          chunk.get();
+        }
+        while (chunk.hasRemaining()) {
+          b = chunk.get();
+          if (quoted) {
+            if (b == '"') {
+              if (chunk.hasRemaining() && chunk.get(chunk.position()) == '"') {
+                chunk.get();
+              } else {
+                quoted = false;
+                continue;
+              }
+            }
+          } else if (b == ',' || b == '\n') {
+            break;
+          } else if (b == '\r') {
+            continue;
+          }
+          if (length == field.length) {
+            field = Arrays.copyOf(field, length * 2);
+          }
+          field[length++] = b;
+        }
+
+        if (column >= row.length) {
+          throw new IllegalArgumentException(
+              "Too many fields in a row of " + table.getTable() + " export");
+        }
+        row[column] =
+            length == 0 && !wasQuoted
+                ? null
+                : table.type(column).parse(new String(field, 0, length, StandardCharsets.UTF_8));
+        column++;
+
+        if (b == '\n' || !chunk.hasRemaining()) {
+          if (column != row.length) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Row of %s has %s fields, expected %s", table.getTable(), column, row.length));
+          }
+          rows.accept(row);
+          row = new Object[table.size()];
+          column = 0;
+        }
+      }
+    }
+  };
+
+  private static final int MAGIC = 0x534E5431;
+  private static final int BLOCK_HEADER_BYTES = 2 * Integer.BYTES;
+  private static final long MAX_HEADER_BYTES = 64 * 1024;
+  private static final long SCAN_WINDOW_BYTES = 64L * 1024 * 1024;
+
+  private final String extension;
+
+  FileFormat(String extension) {
+    this.extension = extension;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public static FileFormat forName(String name) {
+    for (FileFormat format : values()) {
+      if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown file format " + name);
+  }
+
+  abstract void writeHeader(FileChannel channel, TableFormat table) throws IOException;
+
+  /** Checks the header against {@code table} and returns the offset of the first row. */
+  abstract long readHeader(FileChannel channel, TableFormat table) throws IOException;
+
+  abstract void encode(Object[] row, TableFormat table, Block out);
+
+  /** Appends the rows encoded in {@code block}; safe to call from several threads. */
+  abstract void writeBlock(FileChannel channel, Block block) throws IOException;
+
+  /** Divides {@code [dataStart, size)} into chunks of whole rows of about {@code chunkBytes}. */
+  abstract List<long[]> split(FileChannel channel, long dataStart, long chunkBytes)
+      throws IOException;
+
+  abstract void decode(ByteBuffer chunk, TableFormat table, Consumer<Object[]> rows);
+
+  private static void checkColumns(String name, List<String> names, TableFormat table)
+      throws IOException {
+    if (!name.equalsIgnoreCase(table.getTable())
+        || !names.toString().equalsIgnoreCase(table.getColumnNames().toString())) {
+      throw new IOException(
+          String.format(
+              "%s %s does not match %s %s",
+              name, names, table.getTable(), table.getColumnNames()));
+    }
+  }
+
+  private static ByteBuffer mapHeader(FileChannel channel) throws IOException {
+    return channel.map(
+        FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), MAX_HEADER_BYTES));
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void appendField(StringBuilder line, String value) {
+    boolean quote = value.isEmpty();
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      line.append(value);
+      return;
+    }
+    line.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        line.append('"');
+      }
+      line.append(c);
+    }
+    line.append('"');
+  }
+}
@@ -0,0 +1,119 @@
+package transfer;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import logic.StreamingAggregator;
+import logic.TokenRangeScanner;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a table to a file. Token ranges are scanned in parallel and each range encodes its rows
+ * into its own block, which is appended to the file whenever it fills up; row order in the file
+ * therefore follows no particular key.
+ */
+public class TableExporter {
+
+  private static final Logger LOGGER = Logger.getLogger(TableExporter.class);
+
+  /** Encoded bytes a range buffers before appending them to the file. */
+  public static final int BLOCK_BYTES = 1024 * 1024;
+
+  private final TokenRangeScanner scanner;
+  private final FileFormat format;
+
+  public TableExporter(Session session, FileFormat format) {
+    this(new TokenRangeScanner(session), format);
+  }
+
+  public TableExporter(TokenRangeScanner scanner, FileFormat format) {
+    this.scanner = scanner;
+    this.format = format;
+  }
+
+  /** Writes every row of {@code table} to {@code file}, replacing it, and returns the row count. */
+  public long export(TableFormat table, Path file) {
+    LOGGER.info("Exporting " + table.getTable() + " to " + file + "...");
+    long start = System.nanoTime();
+    long rows;
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      format.writeHeader(channel, table);
+      Partial result =
+          scanner.scan(
+              table.getTable(),
+              table.getPartitionKey(),
+              table.selectColumns(),
+              new Encoder(table, channel));
+      flush(channel, result);
+      rows = result.rows;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot export " + table.getTable() + " to " + file, e);
+    }
+    LOGGER.info(
+        String.format(
+            "%s rows of %s exported in %.1f s",
+            rows, table.getTable(), (System.nanoTime() - start) / 1e9));
+    return rows;
+  }
+
+  private void flush(FileChannel channel, Partial partial) {
+    if (partial.block.rows() == 0) {
+      return;
+    }
+    try {
+      format.writeBlock(channel, partial.block);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    partial.rows += partial.block.rows();
+    partial.block.clear();
+  }
+
+  private static class Partial {
+
+    private final Block block = new Block(BLOCK_BYTES + BLOCK_BYTES / 4);
+    private long rows;
+  }
+
+  private class Encoder implements StreamingAggregator<Partial> {
+
+    private final TableFormat table;
+    private final FileChannel channel;
+
+    private Encoder(TableFormat table, FileChannel channel) {
+      this.table = table;
+      this.channel = channel;
+    }
+
+    @Override
+    public Partial newPartial() {
+      return new Partial();
+    }
+
+    @Override
+    public void accumulate(Partial partial, Row row) {
+      format.encode(table.read(row), table, partial.block);
+      if (partial.block.size() >= BLOCK_BYTES) {
+        flush(channel, partial);
+      }
+    }
+
+    /** Writes out what is left of {@code right}, so only one partial block is kept. */
+    @Override
+    public Partial merge(Partial left, Partial right) {
+      flush(channel, right);
+      left.rows += right.rows;
+      return left;
+    }
+  }
+}
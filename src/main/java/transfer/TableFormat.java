@@ -0,0 +1,180 @@
+package transfer;
+
+import com.datastax.driver.core.Row;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/** Columns of one exportable table, in file order, and the CQL to read and write them. */
+public class TableFormat {
+
+  public static final TableFormat USERS =
+      new TableFormat(
+          "sntask5.users",
+          "id",
+          column("id", ColumnType.BIGINT),
+          column("name", ColumnType.TEXT),
+          column("surname", ColumnType.TEXT),
+          column("birthdate", ColumnType.DATE),
+          column("movies", ColumnType.BIGINT_LIST),
+          column("movie_count", ColumnType.INT),
+          column("audioTracks", ColumnType.BIGINT_LIST));
+
+  public static final TableFormat MOVIES =
+      new TableFormat(
+          "sntask5.movies",
+          "id",
+          column("id", ColumnType.BIGINT),
+          column("title", ColumnType.TEXT),
+          column("country", ColumnType.TEXT),
+          column("year", ColumnType.DATE));
+
+  public static final TableFormat AUDIO_TRACKS =
+      new TableFormat(
+          "sntask5.audioTracks",
+          "id",
+          column("id", ColumnType.BIGINT),
+          column("title", ColumnType.TEXT),
+          column("author", ColumnType.TEXT),
+          column("album", ColumnType.TEXT),
+          column("year", ColumnType.DATE));
+
+  public static final TableFormat MESSAGES =
+      new TableFormat(
+          "sntask5.messages",
+          "id",
+          column("id", ColumnType.BIGINT),
+          column("senderId", ColumnType.BIGINT),
+          column("recipientId", ColumnType.BIGINT),
+          column("text", ColumnType.TEXT),
+          column("date", ColumnType.DATE));
+
+  public static final TableFormat MESSAGES_BY_USER =
+      new TableFormat(
+          "sntask5.messages_by_user",
+          "userid, month",
+          column("userid", ColumnType.BIGINT),
+          column("month", ColumnType.INT),
+          column("sent", ColumnType.TIMESTAMP),
+          column("messageid", ColumnType.BIGINT),
+          column("senderid", ColumnType.BIGINT),
+          column("text", ColumnType.TEXT));
+
+  public static final TableFormat FRIENDSHIPS =
+      new TableFormat(
+          "sntask5.friendships",
+          "userid",
+          column("userid", ColumnType.BIGINT),
+          column("friendsIds", ColumnType.BIGINT_LIST),
+          column("date", ColumnType.DATE));
+
+  public static final TableFormat FRIENDS_BY_USER =
+      new TableFormat(
+          "sntask5.friends_by_user",
+          "userid",
+          column("userid", ColumnType.BIGINT),
+          column("friendid", ColumnType.BIGINT),
+          column("since", ColumnType.DATE));
+
+  /** Every table that holds source data; the counter tables are rebuilt from these. */
+  public static final List<TableFormat> ALL =
+      Collections.unmodifiableList(
+          Arrays.asList(
+              USERS,
+              MOVIES,
+              AUDIO_TRACKS,
+              MESSAGES,
+              MESSAGES_BY_USER,
+              FRIENDSHIPS,
+              FRIENDS_BY_USER));
+
+  private final String table;
+  private final String partitionKey;
+  private final List<String> names = new ArrayList<>();
+  private final List<ColumnType> types = new ArrayList<>();
+
+  private TableFormat(String table, String partitionKey, Column... columns) {
+    this.table = table;
+    this.partitionKey = partitionKey;
+    for (Column column : columns) {
+      names.add(column.name);
+      types.add(column.type);
+    }
+  }
+
+  /** The format of {@code name}, with or without the keyspace, ignoring case. */
+  public static TableFormat forTable(String name) {
+    for (TableFormat format : ALL) {
+      if (format.table.equalsIgnoreCase(name) || format.getName().equalsIgnoreCase(name)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("No exportable table named " + name);
+  }
+
+  /** Table name without the keyspace, lower case, as used for file names. */
+  public String getName() {
+    return table.substring(table.indexOf('.') + 1).toLowerCase(Locale.ROOT);
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  public String getPartitionKey() {
+    return partitionKey;
+  }
+
+  public List<String> getColumnNames() {
+    return Collections.unmodifiableList(names);
+  }
+
+  public int size() {
+    return types.size();
+  }
+
+  public ColumnType type(int column) {
+    return types.get(column);
+  }
+
+  public String selectColumns() {
+    return String.join(", ", names);
+  }
+
+  public String insertCql() {
+    return "INSERT INTO "
+        + table
+        + " ("
+        + selectColumns()
+        + ") VALUES ("
+        + String.join(", ", Collections.nCopies(names.size(), "?"))
+        + ")";
+  }
+
+  /** The row's values in column order, {@code null} for unset columns. */
+  Object[] read(Row row) {
+    Object[] values = new Object[types.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = types.get(i).readOrNull(row, i);
+    }
+    return values;
+  }
+
+  private static Column column(String name, ColumnType type) {
+    return new Column(name, type);
+  }
+
+  private static class Column {
+
+    private final String name;
+    private final ColumnType type;
+
+    private Column(String name, ColumnType type) {
+      this.name = name;
+      this.type = type;
+    }
+  }
+}
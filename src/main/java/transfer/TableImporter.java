@@ -0,0 +1,132 @@
+package transfer;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import connection.AsyncWriter;
+import connection.DataLoader;
+import connection.TokenAwareBatcher;
+import metrics.Instrumentation;
+import metrics.WriterMetrics;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams a file written by {@link TableExporter} back into its table. The file is split into
+ * chunks of whole rows, each chunk is memory-mapped and decoded on its own thread, and the rows go
+ * straight into token-aware batches on an {@link AsyncWriter}, so no more than the mapped pages
+ * and the in-flight writes are held in memory.
+ */
+public class TableImporter {
+
+  private static final Logger LOGGER = Logger.getLogger(TableImporter.class);
+
+  public static final long CHUNK_BYTES = 16L * 1024 * 1024;
+  public static final int PARSER_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /** Failure causes attached to the exception of an import with failed writes. */
+  private static final int REPORTED_FAILURES = 10;
+
+  private final Session session;
+  private final FileFormat format;
+
+  public TableImporter(Session session, FileFormat format) {
+    this.session = session;
+    this.format = format;
+  }
+
+  /**
+   * Inserts every row of {@code file} into {@code table} and returns the row count.
+   *
+   * @throws IllegalStateException if any write still failed after its retries, with the first
+   *     failure causes attached as suppressed exceptions
+   */
+  public long importFile(TableFormat table, Path file) {
+    LOGGER.info("Importing " + file + " into " + table.getTable() + "...");
+    long start = System.nanoTime();
+    PreparedStatement insert = session.prepare(table.insertCql()).setIdempotent(true);
+    WriterMetrics metrics = Instrumentation.writer("import " + table.getName());
+    LongAdder rows = new LongAdder();
+
+    ExecutorService parsers = Executors.newFixedThreadPool(PARSER_THREADS);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        AsyncWriter writer =
+            new AsyncWriter(session, DataLoader.MAX_IN_FLIGHT, DataLoader.MAX_RETRIES)
+                .withMetrics(metrics)
+                .withLimiter(DataLoader.newWriteLimiter());
+        TokenAwareBatcher batcher = new TokenAwareBatcher(writer, session)) {
+      long dataStart = format.readHeader(channel, table);
+      List<Future<?>> chunks = new ArrayList<>();
+      for (long[] chunk : format.split(channel, dataStart, CHUNK_BYTES)) {
+        chunks.add(
+            parsers.submit(
+                () -> {
+                  format.decode(
+                      channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]),
+                      table,
+                      row -> {
+                        batcher.add(bind(insert, row));
+                        rows.increment();
+                        metrics.recordRow();
+                      });
+                  return null;
+                }));
+      }
+      for (Future<?> chunk : chunks) {
+        chunk.get();
+      }
+      batcher.flush();
+      writer.awaitCompletion();
+      if (writer.getFailed() > 0) {
+        IllegalStateException failure =
+            new IllegalStateException(
+                String.format(
+                    "Import of %s incomplete: %s of %s writes into %s failed",
+                    file, writer.getFailed(), writer.getWritten() + writer.getFailed(),
+                    table.getTable()));
+        writer.getFailures().stream()
+            .limit(REPORTED_FAILURES)
+            .forEach(cause -> failure.addSuppressed(cause.getCause()));
+        throw failure;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot import " + file, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while importing " + file, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Import of " + file + " failed", e.getCause());
+    } finally {
+      parsers.shutdownNow();
+    }
+    LOGGER.info(
+        String.format(
+            "%s rows imported into %s in %.1f s",
+            rows.sum(), table.getTable(), (System.nanoTime() - start) / 1e9));
+    return rows.sum();
+  }
+
+  /** Null columns are left unset rather than bound to null, so they write no tombstones. */
+  @SuppressWarnings("unchecked")
+  private static BoundStatement bind(PreparedStatement insert, Object[] row) {
+    BoundStatement statement = insert.bind();
+    for (int i = 0; i < row.length; i++) {
+      if (row[i] != null) {
+        statement.set(i, row[i], (Class<Object>) row[i].getClass());
+      }
+    }
+    return statement;
+  }
+}
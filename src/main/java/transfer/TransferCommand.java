@@ -0,0 +1,74 @@
+package transfer;
+
+import com.datastax.driver.core.Session;
+import connection.CassandraConnection;
+import connection.DatabaseCreator;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Usage: {@code TransferCommand export|import <table|all> <csv|binary> [directory]}. Each table
+ * goes to or comes from {@code <directory>/<table>.<csv|bin>}. A failed table stops the command
+ * with an exception, so the process exits with a non-zero status.
+ *
+ * <p>Counter tables are not transferred. After importing, rebuild them with {@code
+ * logic.CounterReconciler}.
+ */
+public class TransferCommand {
+
+  private static final Logger LOGGER = Logger.getLogger(TransferCommand.class);
+
+  public static final String DEFAULT_DIRECTORY = "export";
+  private static final String ALL_TABLES = "all";
+
+  private TransferCommand() {}
+
+  public static void main(String[] args) {
+    if (args.length < 3) {
+      throw new IllegalArgumentException(
+          "Usage: TransferCommand export|import <table|all> <csv|binary> [directory]");
+    }
+    boolean export = "export".equalsIgnoreCase(args[0]);
+    if (!export && !"import".equalsIgnoreCase(args[0])) {
+      throw new IllegalArgumentException("Unknown command " + args[0]);
+    }
+    List<TableFormat> tables =
+        ALL_TABLES.equalsIgnoreCase(args[1])
+            ? TableFormat.ALL
+            : Collections.singletonList(TableFormat.forTable(args[1]));
+    FileFormat format = FileFormat.forName(args[2]);
+    Path directory = Paths.get(args.length > 3 ? args[3] : DEFAULT_DIRECTORY);
+
+    try {
+      Session session = CassandraConnection.getSession();
+      if (export) {
+        Files.createDirectories(directory);
+        TableExporter exporter = new TableExporter(session, format);
+        for (TableFormat table : tables) {
+          exporter.export(table, file(directory, table, format));
+        }
+      } else {
+        DatabaseCreator.createMissingKeyspaceAndTables();
+        TableImporter importer = new TableImporter(session, format);
+        for (TableFormat table : tables) {
+          importer.importFile(table, file(directory, table, format));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create " + directory, e);
+    } finally {
+      CassandraConnection.closeSession();
+    }
+  }
+
+  private static Path file(Path directory, TableFormat table, FileFormat format) {
+    return directory.resolve(table.getName() + "." + format.getExtension());
+  }
+}
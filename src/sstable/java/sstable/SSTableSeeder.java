@@ -0,0 +1,221 @@
+package sstable;
+
+import connection.DataGenerator;
+import connection.DataLoader;
+import connection.DatabaseCreator;
+import connection.LoadPipeline;
+import connection.Months;
+import model.Friendship;
+import model.LongIdList;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.io.sstable.CQLSSTableWriter;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes the generated data straight to SSTable files on local disk instead of going through the
+ * CQL write path. Each table goes to {@code <output>/sntask5/<table>}, which is the layout {@code
+ * sstableloader} expects. The schemas and rows are the same as those used by {@link DataLoader}
+ * and {@link DatabaseCreator}.
+ *
+ * <p>{@code friendship_max_by_month} is derived from the friendship rows while they are written.
+ * The counter tables {@code messages_by_day}, {@code friendships_by_month} and {@code
+ * friend_counts} cannot be written this way; after the import, rebuild them with {@code
+ * logic.CounterReconciler}.
+ */
+public class SSTableSeeder {
+
+  private static final Logger LOGGER = Logger.getLogger(SSTableSeeder.class);
+
+  public static final String DEFAULT_OUTPUT = "build/sstables";
+  public static final String KEYSPACE = "sntask5";
+
+  private static final String INSERT_FRIENDSHIP_MAX_CQL =
+      "INSERT INTO "
+          + DatabaseCreator.TABLE_NAME_FRIENDSHIP_MAX_BY_MONTH
+          + " (month, friends) VALUES (?, ?)";
+
+  /** Rows buffered in memory before a writer flushes them to a new SSTable. */
+  public static final int BUFFER_SIZE_MB = 128;
+
+  private SSTableSeeder() {}
+
+  /** Usage: {@code SSTableSeeder [outputDirectory]}. */
+  public static void main(String[] args) {
+    File output = new File(args.length > 0 ? args[0] : DEFAULT_OUTPUT);
+    long start = System.nanoTime();
+    seed(output);
+    LOGGER.info(
+        String.format(
+            "SSTables written to %s in %.1f s (%s MB)",
+            output.getAbsolutePath(),
+            (System.nanoTime() - start) / 1e9,
+            directorySize(output.toPath()) / (1024 * 1024)));
+  }
+
+  public static void seed(File output) {
+    long users = DataLoader.NUMBER_OF_USERS;
+    long movies = DataLoader.NUMBER_OF_MOVIES;
+    long audioTracks = DataLoader.NUMBER_AUDIO_TRACKS;
+
+    write(
+        output,
+        "movies",
+        DatabaseCreator.moviesTableCql(),
+        DataLoader.INSERT_MOVIE_CQL,
+        movies,
+        DataGenerator::generateMovies,
+        DataLoader::movieValues);
+    write(
+        output,
+        "audiotracks",
+        DatabaseCreator.audioTracksTableCql(),
+        DataLoader.INSERT_AUDIO_TRACK_CQL,
+        audioTracks,
+        DataGenerator::generateAudioTracks,
+        DataLoader::audioTrackValues);
+    write(
+        output,
+        "users",
+        DatabaseCreator.usersTableCql(),
+        DataLoader.INSERT_USER_CQL,
+        users,
+        (from, to, sink) -> DataGenerator.generateUsers(from, to, movies, audioTracks, sink),
+        DataLoader::userValues);
+    Map<Integer, Integer> maxByMonth = new TreeMap<>();
+    write(
+        output,
+        "friendships",
+        DatabaseCreator.friendshipsTableCql(),
+        DataLoader.INSERT_FRIENDSHIP_CQL,
+        DataLoader.NUMBER_FRIENDSHIPS,
+        (from, to, sink) -> DataGenerator.generateFriendships(from, to, users, sink),
+        (Friendship friendship) -> {
+          maxByMonth.merge(
+              Months.month(friendship.getDate().getTime()),
+              friendship.getFriendsIds().size(),
+              Math::max);
+          return DataLoader.friendshipValues(friendship);
+        });
+    List<Map.Entry<Integer, Integer>> monthlyMax = new ArrayList<>(maxByMonth.entrySet());
+    write(
+        output,
+        "friendship_max_by_month",
+        DatabaseCreator.friendshipMaxByMonthTableCql(),
+        INSERT_FRIENDSHIP_MAX_CQL,
+        monthlyMax.size(),
+        (from, to, sink) -> {
+          for (long i = from; i < to; i++) {
+            sink.accept(monthlyMax.get((int) i));
+          }
+        },
+        (Map.Entry<Integer, Integer> entry) -> new Object[] {entry.getKey(), entry.getValue()});
+    write(
+        output,
+        "friends_by_user",
+        DatabaseCreator.friendsByUserTableCql(),
+        DataLoader.INSERT_FRIEND_EDGE_CQL,
+        DataLoader.NUMBER_FRIENDSHIPS,
+        (from, to, sink) ->
+            DataGenerator.generateFriendships(
+                from, to, users, friendship -> DataLoader.forEachEdge(friendship, sink)),
+        DataLoader::friendEdgeValues);
+    write(
+        output,
+        "messages",
+        DatabaseCreator.messagesTableCql(),
+        DataLoader.INSERT_MESSAGE_CQL,
+        DataLoader.NUMBER_MESSAGES,
+        (from, to, sink) -> DataGenerator.generateMessages(from, to, users, sink),
+        DataLoader::messageValues);
+    write(
+        output,
+        "messages_by_user",
+        DatabaseCreator.messagesByUserTableCql(),
+        DataLoader.INSERT_MESSAGE_BY_USER_CQL,
+        DataLoader.NUMBER_MESSAGES,
+        (from, to, sink) -> DataGenerator.generateMessages(from, to, users, sink),
+        DataLoader::messageByUserValues);
+  }
+
+  /**
+   * Generates ids {@code [0, numberOfRows)} on all cores and writes the rows from one thread, as a
+   * {@link CQLSSTableWriter} is not thread-safe.
+   */
+  private static <T> void write(
+      File output,
+      String table,
+      String schemaCql,
+      String insertCql,
+      long numberOfRows,
+      LoadPipeline.RangeGenerator<T> generator,
+      Function<T, Object[]> values) {
+
+    File directory = new File(new File(output, KEYSPACE), table);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new UncheckedIOException(new IOException("Cannot create " + directory));
+    }
+
+    LOGGER.info("Writing SSTables of " + table + "...");
+    long rows;
+    try (CQLSSTableWriter writer =
+        CQLSSTableWriter.builder()
+            .inDirectory(directory)
+            .forTable(schemaCql)
+            .using(insertCql)
+            .withPartitioner(Murmur3Partitioner.instance)
+            .withBufferSizeInMB(BUFFER_SIZE_MB)
+            .build()) {
+      rows =
+          new LoadPipeline<T>(
+                  table, DataLoader.GENERATOR_THREADS, 1, DataLoader.QUEUE_CAPACITY)
+              .run(
+                  0,
+                  numberOfRows,
+                  DataLoader.BATCH_SIZE,
+                  generator,
+                  row -> addRow(writer, values.apply(row)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write SSTables of " + table, e);
+    }
+    LOGGER.info(String.format("%s rows of %s written", rows, table));
+  }
+
+  /** The writer only knows the standard codecs, so id lists go in as {@code List<Long>}. */
+  private static void addRow(CQLSSTableWriter writer, Object[] values) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] instanceof LongIdList) {
+        LongIdList ids = (LongIdList) values[i];
+        List<Long> boxed = new ArrayList<>(ids.size());
+        for (int j = 0; j < ids.size(); j++) {
+          boxed.add(ids.get(j));
+        }
+        values[i] = boxed;
+      }
+    }
+    try {
+      writer.addRow(values);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long directorySize(Path directory) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+}
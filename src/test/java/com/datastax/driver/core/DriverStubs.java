@@ -0,0 +1,77 @@
+package com.datastax.driver.core;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+/**
+ * Driver objects whose constructors are package-private, for tests that stand in for a cluster.
+ * Tokens are Murmur3, the partitioner of the application's keyspace.
+ */
+public final class DriverStubs {
+
+  private static final Token.Factory MURMUR3 =
+      Token.getFactory("org.apache.cassandra.dht.Murmur3Partitioner");
+
+  private DriverStubs() {}
+
+  public static Token token(long value) {
+    return MURMUR3.fromString(Long.toString(value));
+  }
+
+  public static Token minToken() {
+    return MURMUR3.minToken();
+  }
+
+  public static TokenRange range(Token start, Token end) {
+    return new TokenRange(start, end, MURMUR3);
+  }
+
+  /**
+   * A prepared {@code query} whose bind variables are all tokens, as the server would describe
+   * them. Binding works as usual; nothing else is supported.
+   */
+  public static PreparedStatement prepared(String query) {
+    int variables = query.length() - query.replace("?", "").length();
+    ColumnDefinitions.Definition[] definitions = new ColumnDefinitions.Definition[variables];
+    for (int i = 0; i < variables; i++) {
+      definitions[i] = new ColumnDefinitions.Definition("ks", "t", "token" + i, DataType.bigint());
+    }
+    ColumnDefinitions columns = new ColumnDefinitions(definitions, CodecRegistry.DEFAULT_INSTANCE);
+    PreparedId id =
+        new PreparedId(
+            new PreparedId.PreparedMetadata(MD5Digest.wrap(new byte[16]), columns),
+            new PreparedId.PreparedMetadata(
+                MD5Digest.wrap(new byte[16]), ColumnDefinitions.EMPTY),
+            new int[0],
+            ProtocolVersion.NEWEST_SUPPORTED);
+
+    PreparedStatement[] prepared = new PreparedStatement[1];
+    prepared[0] =
+        (PreparedStatement)
+            Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                  switch (method.getName()) {
+                    case "bind":
+                      return new BoundStatement(prepared[0]);
+                    case "getVariables":
+                      return columns;
+                    case "getPreparedId":
+                      return id;
+                    case "getQueryString":
+                      return query;
+                    case "getCodecRegistry":
+                      return CodecRegistry.DEFAULT_INSTANCE;
+                    case "getOutgoingPayload":
+                    case "getIncomingPayload":
+                      return Collections.emptyMap();
+                    case "isTracing":
+                      return false;
+                    default:
+                      return null;
+                  }
+                });
+    return prepared[0];
+  }
+}
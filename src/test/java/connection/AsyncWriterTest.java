@@ -0,0 +1,193 @@
+package connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.google.common.util.concurrent.AbstractFuture;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AsyncWriterTest {
+
+  /** Longer than any retry backoff, so a retry that is coming has been sent by then. */
+  private static final long WAIT_MILLIS = 5_000;
+
+  private final BlockingQueue<PendingResult> sent = new LinkedBlockingQueue<>();
+  private final Session session = fakeSession(sent);
+
+  @Test
+  public void writeBlocksWhileMaxInFlightRequestsAreOutstanding() throws Exception {
+    AsyncWriter writer = new AsyncWriter(session, 2, 0);
+    writer.write(statement(true));
+    writer.write(statement(true));
+    Thread third = new Thread(() -> writer.write(statement(true)));
+    third.start();
+
+    third.join(100);
+    assertTrue(third.isAlive());
+    assertEquals(2, sent.size());
+
+    sent.take().succeed();
+    third.join(WAIT_MILLIS);
+    assertFalse(third.isAlive());
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void retriesIdempotentStatementsUntilTheySucceed() throws Exception {
+    AsyncWriter writer = new AsyncWriter(session, 4, 3);
+    Statement statement = statement(true);
+    writer.write(statement);
+
+    nextSent().fail(new OverloadedException(null, "overloaded"));
+    PendingResult retry = nextSent();
+    assertSame(statement, retry.statement);
+    retry.succeed();
+    writer.awaitCompletion();
+
+    assertEquals(1, writer.getWritten());
+    assertEquals(1, writer.getRetried());
+    assertEquals(0, writer.getFailed());
+  }
+
+  @Test
+  public void failsIdempotentStatementsOnceRetriesAreExhausted() throws Exception {
+    AsyncWriter writer = new AsyncWriter(session, 4, 1);
+    writer.write(statement(true));
+
+    nextSent().fail(new OverloadedException(null, "overloaded"));
+    OverloadedException last = new OverloadedException(null, "still overloaded");
+    nextSent().fail(last);
+    writer.awaitCompletion();
+
+    assertEquals(1, writer.getRetried());
+    assertEquals(1, writer.getFailed());
+    assertSame(last, writer.getFailures().get(0).getCause());
+  }
+
+  @Test
+  public void doesNotRetryStatementsThatAreNotIdempotent() throws Exception {
+    AsyncWriter writer = new AsyncWriter(session, 4, 3);
+    Statement statement = statement(false);
+    writer.write(statement);
+
+    nextSent().fail(new OverloadedException(null, "overloaded"));
+    writer.awaitCompletion();
+
+    assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(0, writer.getRetried());
+    assertEquals(1, writer.getFailed());
+    assertSame(statement, writer.getFailures().get(0).getStatement());
+  }
+
+  @Test
+  public void doesNotRetryInvalidQueries() throws Exception {
+    AsyncWriter writer = new AsyncWriter(session, 4, 3);
+    writer.write(statement(true));
+
+    nextSent().fail(new InvalidQueryException("unknown column"));
+    writer.awaitCompletion();
+
+    assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(0, writer.getRetried());
+    assertEquals(1, writer.getFailed());
+  }
+
+  @Test
+  public void awaitCompletionBlocksUntilEveryWriteHasCompleted() throws Exception {
+    AsyncWriter writer = new AsyncWriter(session, 4, 0);
+    writer.write(statement(true));
+    writer.write(statement(true));
+    Thread waiter = new Thread(writer::awaitCompletion);
+    waiter.start();
+
+    sent.take().succeed();
+    waiter.join(100);
+    assertTrue(waiter.isAlive());
+
+    sent.take().fail(new InvalidQueryException("unknown column"));
+    waiter.join(WAIT_MILLIS);
+    assertFalse(waiter.isAlive());
+    assertEquals(1, writer.getWritten());
+    assertEquals(1, writer.getFailed());
+  }
+
+  @Test
+  public void retryDelayGrowsExponentiallyUpToTheCap() {
+    for (int attempt = 0; attempt < 30; attempt++) {
+      long delay = Math.min(1_000, 10L << Math.min(attempt, 20));
+      long actual = AsyncWriter.retryDelayMillis(attempt);
+      assertTrue(actual + " for attempt " + attempt, actual >= delay / 2 && actual <= delay);
+    }
+  }
+
+  private PendingResult nextSent() throws InterruptedException {
+    PendingResult result = sent.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    assertNotNull(result);
+    return result;
+  }
+
+  private static Statement statement(boolean idempotent) {
+    return new SimpleStatement("INSERT INTO t (k) VALUES (1)").setIdempotent(idempotent);
+  }
+
+  /** A session whose {@code executeAsync} queues results that the test completes by hand. */
+  private static Session fakeSession(BlockingQueue<PendingResult> sent) {
+    return (Session)
+        Proxy.newProxyInstance(
+            Session.class.getClassLoader(),
+            new Class<?>[] {Session.class},
+            (proxy, method, args) -> {
+              if (!method.getName().equals("executeAsync") || !(args[0] instanceof Statement)) {
+                throw new UnsupportedOperationException(method.getName());
+              }
+              PendingResult result = new PendingResult((Statement) args[0]);
+              sent.add(result);
+              return result;
+            });
+  }
+
+  private static class PendingResult extends AbstractFuture<ResultSet>
+      implements ResultSetFuture {
+
+    private final Statement statement;
+
+    private PendingResult(Statement statement) {
+      this.statement = statement;
+    }
+
+    void succeed() {
+      set(null);
+    }
+
+    void fail(Throwable cause) {
+      setException(cause);
+    }
+
+    @Override
+    public ResultSet getUninterruptibly() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ResultSet getUninterruptibly(long timeout, TimeUnit unit) throws TimeoutException {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
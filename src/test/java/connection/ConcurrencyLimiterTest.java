@@ -0,0 +1,133 @@
+package connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+
+  private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final ConcurrencyLimiter limiter =
+      new ConcurrencyLimiter(8, 64, 256, 50, TimeUnit.MILLISECONDS);
+
+  @Test
+  public void growsByOneWhileLatencyIsOnTargetAndTheLimitIsUsed() {
+    assertEquals(65, limiter.nextLimit(64, false, TARGET_NANOS, 32), 0);
+  }
+
+  @Test
+  public void holdsWhileLessThanHalfTheLimitIsUsed() {
+    assertEquals(64, limiter.nextLimit(64, false, TARGET_NANOS / 2, 31), 0);
+  }
+
+  @Test
+  public void scalesDownByTheLatencyOverTheTarget() {
+    assertEquals(64 * 0.8, limiter.nextLimit(64, false, TARGET_NANOS * 10 / 8, 64), 1e-9);
+  }
+
+  @Test
+  public void backsOffByAtMostTheRatio() {
+    double backedOff = 64 * ConcurrencyLimiter.BACKOFF_RATIO;
+    assertEquals(backedOff, limiter.nextLimit(64, false, TARGET_NANOS * 10, 64), 1e-9);
+    assertEquals(backedOff, limiter.nextLimit(64, true, 0, 64), 1e-9);
+  }
+
+  @Test
+  public void staysWithinItsBounds() {
+    assertEquals(8, limiter.nextLimit(9, true, 0, 9), 0);
+    assertEquals(256, limiter.nextLimit(256, false, 0, 256), 0);
+  }
+
+  @Test
+  public void windowOfFastSamplesRaisesTheLimit() {
+    for (int i = 0; i < 64; i++) {
+      limiter.acquire();
+    }
+    for (int i = 0; i < 64; i++) {
+      limiter.onSample(TARGET_NANOS / 2, null);
+      limiter.release();
+    }
+    assertEquals(65, limiter.getLimit());
+  }
+
+  @Test
+  public void windowWithAnOverloadBacksOff() {
+    limiter.acquire();
+    limiter.onSample(TARGET_NANOS / 2, new OverloadedException(null, "overloaded"));
+    limiter.release();
+    for (int i = 1; i < 64; i++) {
+      limiter.onSample(TARGET_NANOS / 2, null);
+    }
+    assertEquals((int) (64 * ConcurrencyLimiter.BACKOFF_RATIO), limiter.getLimit());
+  }
+
+  @Test
+  public void decisionOfAnEarlierWindowDoesNotOverwriteALaterOne() throws Exception {
+    CountDownLatch laterWindowApplied = new CountDownLatch(1);
+    ConcurrencyLimiter slowToGrow =
+        new ConcurrencyLimiter(8, 64, 256, 50, TimeUnit.MILLISECONDS) {
+          @Override
+          double nextLimit(double current, boolean overload, long p99, int maxUsed) {
+            if (!overload) {
+              try {
+                laterWindowApplied.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            return super.nextLimit(current, overload, p99, maxUsed);
+          }
+        };
+    for (int i = 0; i < 64; i++) {
+      slowToGrow.acquire();
+    }
+
+    // The first window is all fast samples and would grow the limit, but its decision is held
+    // back until a second, overloaded window has closed and backed off.
+    Thread fastWindow =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 64; i++) {
+                slowToGrow.onSample(TARGET_NANOS / 2, null);
+              }
+            });
+    fastWindow.start();
+    while (fastWindow.getState() != Thread.State.WAITING && fastWindow.isAlive()) {
+      Thread.yield();
+    }
+    for (int i = 0; i < 64; i++) {
+      slowToGrow.onSample(TARGET_NANOS / 2, new OverloadedException(null, "overloaded"));
+    }
+    laterWindowApplied.countDown();
+    fastWindow.join();
+
+    assertEquals((int) (64 * ConcurrencyLimiter.BACKOFF_RATIO), slowToGrow.getLimit());
+  }
+
+  @Test
+  public void recognisesOverloadErrors() {
+    assertTrue(ConcurrencyLimiter.isOverload(new OverloadedException(null, "overloaded")));
+    assertTrue(
+        ConcurrencyLimiter.isOverload(
+            new NoHostAvailableException(
+                Collections.singletonMap(null, new OverloadedException(null, "overloaded")))));
+    assertFalse(ConcurrencyLimiter.isOverload(new InvalidQueryException("bad")));
+    assertFalse(
+        ConcurrencyLimiter.isOverload(new NoHostAvailableException(Collections.emptyMap())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAnInitialLimitOutsideTheBounds() {
+    new ConcurrencyLimiter(8, 4, 256, 50, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,107 @@
+package connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import model.LongIdList;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class DistinctSamplerTest {
+
+  @Test
+  public void uniformSamplesAreDistinctSortedAndInRange() {
+    SplittableRandom random = new SplittableRandom(1);
+    for (int amount : new int[] {1, 10, 500, 999, 1_000}) {
+      assertDistinctSortedWithin(
+          DistinctSampler.sample(random, amount, LongDistribution.uniform(100, 1_100)),
+          amount,
+          100,
+          1_100);
+    }
+  }
+
+  @Test
+  public void skewedSamplesAreDistinctEvenWhenTheyFillTheRange() {
+    SplittableRandom random = new SplittableRandom(2);
+    LongDistribution zipf = LongDistribution.zipf(1, 2_001, 1.2);
+    LongDistribution powerLaw = LongDistribution.powerLaw(1, 2_001, 2.5);
+    for (int amount : new int[] {1, 100, 1_999, 2_000}) {
+      assertDistinctSortedWithin(DistinctSampler.sample(random, amount, zipf), amount, 1, 2_001);
+      assertDistinctSortedWithin(
+          DistinctSampler.sample(random, amount, powerLaw), amount, 1, 2_001);
+    }
+  }
+
+  @Test
+  public void samplesAreCappedAtTheSizeOfTheRange() {
+    LongIdList ids =
+        DistinctSampler.sample(new SplittableRandom(3), 50, LongDistribution.uniform(0, 10));
+    assertEquals(LongIdList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), ids);
+  }
+
+  @Test
+  public void sameSeedGivesTheSameSample() {
+    LongDistribution zipf = LongDistribution.zipf(0, 10_000, 1.0);
+    assertEquals(
+        DistinctSampler.sample(new SplittableRandom(4), 300, zipf),
+        DistinctSampler.sample(new SplittableRandom(4), 300, zipf));
+  }
+
+  @Test
+  public void distributionsStayWithinBoundsAndFavourSmallValues() {
+    SplittableRandom random = new SplittableRandom(5);
+    for (LongDistribution distribution :
+        Arrays.asList(
+            LongDistribution.uniform(10, 20),
+            LongDistribution.zipf(10, 20, 1.1),
+            LongDistribution.powerLaw(10, 20, 2.0))) {
+      long[] counts = new long[10];
+      for (int i = 0; i < 100_000; i++) {
+        long value = distribution.sample(random);
+        assertTrue(distribution + " gave " + value, value >= 10 && value < 20);
+        counts[(int) (value - 10)]++;
+      }
+      assertTrue(distribution.toString(), counts[0] > 0 && counts[9] > 0);
+      if (!(distribution instanceof LongDistribution.Uniform)) {
+        assertTrue(distribution.toString(), counts[0] > 3 * counts[9]);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAnEmptyRange() {
+    LongDistribution.uniform(5, 5);
+  }
+
+  @Test
+  public void nextFreeIdsTakesTheNextFreeOffsetAndWraps() {
+    NextFreeIds taken = new NextFreeIds(5, 5);
+    assertEquals(3, taken.take(3));
+    assertEquals(4, taken.take(3));
+    assertEquals(0, taken.take(3));
+    assertEquals(1, taken.take(4));
+    assertEquals(2, taken.take(0));
+  }
+
+  @Test
+  public void nextFreeIdsCrossesALongTakenRun() {
+    int range = 100_000;
+    NextFreeIds taken = new NextFreeIds(range, range);
+    for (int i = 0; i < range; i++) {
+      assertEquals(i, taken.take(0));
+    }
+  }
+
+  private static void assertDistinctSortedWithin(LongIdList ids, int size, long min, long max) {
+    assertEquals(size, ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      assertTrue(ids.get(i) >= min && ids.get(i) < max);
+      if (i > 0) {
+        assertTrue(ids + " is not strictly ascending", ids.get(i - 1) < ids.get(i));
+      }
+    }
+  }
+}
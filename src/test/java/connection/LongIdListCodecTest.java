@@ -0,0 +1,81 @@
+package connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import model.LongIdList;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LongIdListCodecTest {
+
+  private static final TypeCodec<List<Long>> DRIVER_CODEC =
+      TypeCodec.list(TypeCodec.bigint());
+
+  private final LongIdListCodec codec = LongIdListCodec.INSTANCE;
+
+  @Test
+  public void serializesLikeTheDriversListCodec() {
+    for (ProtocolVersion version : ProtocolVersion.values()) {
+      assertEquals(
+          DRIVER_CODEC.serialize(Arrays.asList(1L, -2L, Long.MAX_VALUE), version),
+          codec.serialize(LongIdList.of(1, -2, Long.MAX_VALUE), version));
+      assertEquals(
+          DRIVER_CODEC.serialize(Collections.emptyList(), version),
+          codec.serialize(LongIdList.empty(), version));
+    }
+  }
+
+  @Test
+  public void deserializesWhatTheDriverWritesWithoutConsumingIt() {
+    for (ProtocolVersion version : ProtocolVersion.values()) {
+      ByteBuffer bytes = DRIVER_CODEC.serialize(Arrays.asList(7L, 8L, 9L), version);
+      int remaining = bytes.remaining();
+      assertEquals(LongIdList.of(7, 8, 9), codec.deserialize(bytes, version));
+      assertEquals(remaining, bytes.remaining());
+    }
+  }
+
+  @Test
+  public void deserializesMissingValuesAsEmpty() {
+    assertEquals(LongIdList.empty(), codec.deserialize(null, ProtocolVersion.V4));
+    assertEquals(
+        LongIdList.empty(), codec.deserialize(ByteBuffer.allocate(0), ProtocolVersion.V4));
+    assertNull(codec.serialize(null, ProtocolVersion.V4));
+  }
+
+  @Test(expected = InvalidTypeException.class)
+  public void rejectsElementsThatAreNotBigints() {
+    ByteBuffer ints =
+        TypeCodec.list(TypeCodec.cint()).serialize(Arrays.asList(1, 2), ProtocolVersion.V4);
+    codec.deserialize(ints, ProtocolVersion.V4);
+  }
+
+  @Test
+  public void formatsAndParsesCqlLiterals() {
+    assertEquals("[1,-2,3]", codec.format(LongIdList.of(1, -2, 3)));
+    assertEquals("[]", codec.format(LongIdList.empty()));
+    assertEquals("NULL", codec.format(null));
+    assertEquals(LongIdList.of(1, -2, 3), codec.parse(" [1, -2 ,3] "));
+    assertEquals(LongIdList.empty(), codec.parse("[ ]"));
+    assertNull(codec.parse("NULL"));
+  }
+
+  @Test(expected = InvalidTypeException.class)
+  public void rejectsMalformedLiterals() {
+    codec.parse("[1, two]");
+  }
+
+  @Test
+  public void mapsListOfBigint() {
+    assertEquals(DataType.list(DataType.bigint()), codec.getCqlType());
+  }
+}
@@ -0,0 +1,52 @@
+package logic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+public class DateBucketsTest {
+
+  @Test
+  public void yearMonthMatchesTheCivilCalendar() {
+    // 1600-01-01 to 2400-12-31 crosses eras, century years and leap days on both sides of 1970
+    for (long day = LocalDate.of(1600, 1, 1).toEpochDay();
+        day <= LocalDate.of(2400, 12, 31).toEpochDay();
+        day++) {
+      LocalDate date = LocalDate.ofEpochDay(day);
+      int yearMonth = DateBuckets.yearMonth((int) day);
+      assertEquals(date.toString(), date.getYear(), DateBuckets.year(yearMonth));
+      assertEquals(date.toString(), date.getMonthValue(), DateBuckets.month(yearMonth));
+    }
+  }
+
+  @Test
+  public void dayOfWeekCountsFromSunday() {
+    for (long day = LocalDate.of(1900, 1, 1).toEpochDay();
+        day <= LocalDate.of(2100, 1, 1).toEpochDay();
+        day++) {
+      DayOfWeek dayOfWeek = LocalDate.ofEpochDay(day).getDayOfWeek();
+      assertEquals(dayOfWeek.getValue() % 7 + 1, DateBuckets.dayOfWeek((int) day));
+    }
+  }
+
+  @Test
+  public void knownDates() {
+    assertEquals(5, DateBuckets.dayOfWeek(0));
+    assertEquals("1970-01", DateBuckets.format(DateBuckets.yearMonth(0)));
+    assertEquals("1969-12", DateBuckets.format(DateBuckets.yearMonth(-1)));
+    int leapDay = (int) LocalDate.of(2000, 2, 29).toEpochDay();
+    assertEquals("2000-02", DateBuckets.format(DateBuckets.yearMonth(leapDay)));
+    assertEquals("2000-03", DateBuckets.format(DateBuckets.yearMonth(leapDay + 1)));
+  }
+
+  @Test
+  public void yyyymmRoundTrips() {
+    assertEquals(2019 * 12 + 11, DateBuckets.fromYyyymm(201912));
+    for (int yearMonth = 1900 * 12; yearMonth < 2100 * 12; yearMonth++) {
+      assertEquals(yearMonth, DateBuckets.fromYyyymm(DateBuckets.toYyyymm(yearMonth)));
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.DriverStubs;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Token;
+import com.datastax.driver.core.TokenRange;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenRangeScannerTest {
+
+  /** A three-node ring; the range ending at -100 wraps around the end of the ring. */
+  private static final List<TokenRange> RING =
+      Arrays.asList(
+          range(-100, 0), range(0, 500), DriverStubs.range(token(500), token(-100)));
+
+  private final long[] tokens = rowTokens();
+  private final Queue<String> queries = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @Test
+  public void splitRingCoversEveryTokenExactlyOnce() {
+    List<TokenRange> ranges = TokenRangeScanner.splitRing(RING, 12);
+
+    assertTrue(ranges.size() >= 12);
+    List<TokenRange> wrapping = new ArrayList<>();
+    for (TokenRange range : ranges) {
+      if (range.getEnd().compareTo(range.getStart()) <= 0) {
+        wrapping.add(range);
+      }
+    }
+    assertEquals(1, wrapping.size());
+    assertEquals(DriverStubs.minToken(), wrapping.get(0).getEnd());
+
+    for (long probe :
+        new long[] {Long.MIN_VALUE + 1, -101, -100, -99, 0, 1, 499, 500, 501, Long.MAX_VALUE}) {
+      int containing = 0;
+      for (TokenRange range : ranges) {
+        if (range.contains(token(probe))) {
+          containing++;
+        }
+      }
+      assertEquals("ranges containing " + probe, 1, containing);
+    }
+  }
+
+  @Test
+  public void scanMergesEveryRangeIntoOneResult() {
+    long[] result = scanner(3).scan("ks.t", "k", "k", this::newPartial, this::add, this::merge);
+
+    assertEquals(tokens.length, result[0]);
+    assertEquals(Arrays.stream(tokens).sum(), result[1]);
+  }
+
+  @Test
+  public void wrapAroundRangeIsReadWithAfterToken() {
+    List<TokenRange> ranges = TokenRangeScanner.splitRing(RING, 12);
+    Token lastStart = null;
+    for (TokenRange range : ranges) {
+      if (range.getEnd().equals(DriverStubs.minToken())) {
+        lastStart = range.getStart();
+      }
+    }
+
+    new TokenRangeScanner(fakeSession(), 3, ranges)
+        .scan("ks.t", "k", "k", this::newPartial, this::add, this::merge);
+
+    List<String> afterToken = new ArrayList<>();
+    for (String query : queries) {
+      if (!query.contains("<=")) {
+        afterToken.add(query);
+      }
+    }
+    assertEquals(
+        Collections.singletonList(
+            "token(k) > ? [" + lastStart.getValue() + ", " + Long.MAX_VALUE + "]"),
+        afterToken);
+  }
+
+  @Test
+  public void keepsAtMostConcurrencyQueriesInFlight() {
+    scanner(3).scan("ks.t", "k", "k", this::newPartial, this::add, this::merge);
+
+    assertTrue("max in flight " + maxInFlight, maxInFlight.get() <= 3);
+    assertEquals(3, maxInFlight.get());
+  }
+
+  private TokenRangeScanner scanner(int concurrency) {
+    return new TokenRangeScanner(
+        fakeSession(), concurrency, TokenRangeScanner.splitRing(RING, 4 * concurrency));
+  }
+
+  private long[] newPartial() {
+    return new long[2];
+  }
+
+  private void add(long[] partial, Row row) {
+    partial[0]++;
+    partial[1] += row.getLong(0);
+  }
+
+  private long[] merge(long[] left, long[] right) {
+    left[0] += right[0];
+    left[1] += right[1];
+    return left;
+  }
+
+  /** Serves the rows of {@link #tokens} whose token falls in the bound range. */
+  private Session fakeSession() {
+    return (Session)
+        Proxy.newProxyInstance(
+            Session.class.getClassLoader(),
+            new Class<?>[] {Session.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "prepare":
+                  return DriverStubs.prepared((String) args[0]);
+                case "getLoggedKeyspace":
+                  return null;
+                case "execute":
+                  return execute((BoundStatement) args[0]);
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+
+  private ResultSet execute(BoundStatement statement) throws InterruptedException {
+    int running = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(running, Math::max);
+    try {
+      String query = statement.preparedStatement().getQueryString();
+      long start = statement.getLong(0);
+      boolean bounded = query.contains("<=");
+      long end = bounded ? statement.getLong(1) : Long.MAX_VALUE;
+      queries.add(query.substring(query.indexOf("token")) + " [" + start + ", " + end + "]");
+
+      List<Row> rows = new ArrayList<>();
+      for (long token : tokens) {
+        if (token > start && token <= end) {
+          rows.add(row(token));
+        }
+      }
+      Thread.sleep(5);
+      return resultSet(rows);
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private static ResultSet resultSet(List<Row> rows) {
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "iterator":
+                  return rows.iterator();
+                case "getAvailableWithoutFetching":
+                  return rows.size();
+                case "isFullyFetched":
+                  return true;
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+
+  private static Row row(long token) {
+    return (Row)
+        Proxy.newProxyInstance(
+            Row.class.getClassLoader(),
+            new Class<?>[] {Row.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("getLong")) {
+                return token;
+              }
+              throw new UnsupportedOperationException(method.getName());
+            });
+  }
+
+  /** Random tokens over the whole ring, plus the ring's own boundaries and its extremes. */
+  private static long[] rowTokens() {
+    long[] tokens =
+        new SplittableRandom(1).longs(10_000, Long.MIN_VALUE + 1, Long.MAX_VALUE).toArray();
+    long[] edges = {Long.MIN_VALUE + 1, -100, -99, 0, 1, 500, 501, Long.MAX_VALUE};
+    long[] all = Arrays.copyOf(tokens, tokens.length + edges.length);
+    System.arraycopy(edges, 0, all, tokens.length, edges.length);
+    return all;
+  }
+
+  private static Token token(long value) {
+    return DriverStubs.token(value);
+  }
+
+  private static TokenRange range(long start, long end) {
+    return DriverStubs.range(token(start), token(end));
+  }
+}
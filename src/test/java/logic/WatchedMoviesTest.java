@@ -0,0 +1,84 @@
+package logic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+public class WatchedMoviesTest {
+
+  @Test
+  public void keepsTheUsersWithFewestMoviesInOrder() {
+    WatchedMovies watched = new WatchedMovies(3);
+    watched.add(1, 10);
+    watched.add(2, 5);
+    watched.add(3, 7);
+    watched.add(4, 1);
+    watched.add(5, 20);
+
+    assertEquals(entries(4, 1, 2, 5, 3, 7), watched.smallest());
+  }
+
+  @Test
+  public void breaksTiesBySmallerUserId() {
+    WatchedMovies watched = new WatchedMovies(2);
+    watched.add(9, 3);
+    watched.add(5, 3);
+    watched.add(7, 3);
+
+    assertEquals(entries(5, 3, 7, 3), watched.smallest());
+  }
+
+  @Test
+  public void mergedPartialsMatchASortOfAllUsers() {
+    SplittableRandom random = new SplittableRandom(7);
+    List<Map.Entry<Long, Integer>> all = new ArrayList<>();
+    WatchedMovies left = new WatchedMovies(50);
+    WatchedMovies right = new WatchedMovies(50);
+    for (long userId = 0; userId < 10_000; userId++) {
+      int movies = random.nextInt(100);
+      all.add(new AbstractMap.SimpleImmutableEntry<>(userId, movies));
+      (userId % 2 == 0 ? left : right).add(userId, movies);
+    }
+
+    List<Map.Entry<Long, Integer>> expected =
+        all.stream()
+            .sorted(
+                Comparator.comparing(Map.Entry<Long, Integer>::getValue)
+                    .thenComparing(Map.Entry::getKey))
+            .limit(50)
+            .collect(Collectors.toList());
+    assertEquals(expected, left.merge(right).smallest());
+  }
+
+  @Test
+  public void holdsFewerUsersThanTheLimit() {
+    WatchedMovies watched = new WatchedMovies(10);
+    watched.add(1, 2);
+
+    assertEquals(entries(1, 2), watched.smallest());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsANonPositiveLimit() {
+    new WatchedMovies(0);
+  }
+
+  /** Entries from alternating user ids and movie counts. */
+  private static List<Map.Entry<Long, Integer>> entries(long... userIdsAndMovies) {
+    List<Map.Entry<Long, Integer>> entries = new ArrayList<>();
+    for (int i = 0; i < userIdsAndMovies.length; i += 2) {
+      entries.add(
+          new AbstractMap.SimpleImmutableEntry<>(
+              userIdsAndMovies[i], (int) userIdsAndMovies[i + 1]));
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,71 @@
+package model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class LongIntMapTest {
+
+  @Test
+  public void matchesHashMapAcrossResizes() {
+    LongIntMap map = new LongIntMap();
+    Map<Long, Integer> expected = new HashMap<>();
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < 100_000; i++) {
+      // A narrow key range makes overwrites common; negative keys must work too
+      long key = random.nextLong(-50_000, 50_000);
+      map.put(key, i);
+      expected.put(key, i);
+    }
+
+    assertEquals(expected.size(), map.size());
+    expected.forEach((key, value) -> assertEquals((int) value, map.get(key, -1)));
+    assertEquals(-1, map.get(50_000, -1));
+    assertFalse(map.containsKey(50_000));
+  }
+
+  @Test
+  public void probesPastCollidingKeys() {
+    // Multiples of the capacity share the low bits before hashing; all must stay reachable
+    LongIntMap map = new LongIntMap(4);
+    for (int i = 0; i < 64; i++) {
+      map.put(i * 16L, i);
+    }
+    for (int i = 0; i < 64; i++) {
+      assertTrue(map.containsKey(i * 16L));
+      assertEquals(i, map.get(i * 16L, -1));
+    }
+    assertFalse(map.containsKey(1));
+  }
+
+  @Test
+  public void keysAndForEachVisitEveryEntry() {
+    LongIntMap map = new LongIntMap();
+    map.put(3, 30);
+    map.put(-7, 70);
+    map.put(0, 0);
+
+    long[] keys = map.keys();
+    Arrays.sort(keys);
+    assertArrayEquals(new long[] {-7, 0, 3}, keys);
+
+    LongIntMap copy = new LongIntMap();
+    copy.putAll(map);
+    long[] sum = new long[1];
+    copy.forEach((key, value) -> sum[0] += key * value);
+    assertEquals(3 * 30 - 7 * 70, sum[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsTheReservedKey() {
+    new LongIntMap().put(Long.MIN_VALUE, 1);
+  }
+}
@@ -0,0 +1,138 @@
+package store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+public class CatalogCacheTest {
+
+  private static final long TIME_TO_LIVE_NANOS = 1_000;
+
+  private final MapStore store = new MapStore();
+  private final AtomicLong clock = new AtomicLong();
+
+  @Before
+  public void fillStore() {
+    for (long id = 0; id < 10_000; id++) {
+      store.save(id);
+    }
+  }
+
+  @Test
+  public void staysWithinItsMaximumWeight() {
+    CatalogCache<Long> cache = cache(100, item -> 10);
+    for (long id = 0; id < 1_000; id++) {
+      assertEquals(Long.valueOf(id), cache.find(id));
+    }
+
+    CacheStats stats = cache.stats();
+    assertTrue(stats.toString(), stats.getWeight() <= 100);
+    assertTrue(cache.size() <= 10);
+    assertEquals(1_000 - cache.size(), stats.getEvictions());
+  }
+
+  @Test
+  public void frequentItemsSurviveAScan() {
+    CatalogCache<Long> cache = cache(20, item -> 1);
+    for (int round = 0; round < 10; round++) {
+      for (long id = 0; id < 5; id++) {
+        cache.find(id);
+      }
+    }
+    // Ten times the capacity, each id seen once
+    for (long id = 1_000; id < 1_200; id++) {
+      cache.find(id);
+    }
+
+    long loads = cache.stats().getLoads();
+    for (long id = 0; id < 5; id++) {
+      cache.find(id);
+    }
+    assertEquals(loads, cache.stats().getLoads());
+  }
+
+  @Test
+  public void entriesExpireAfterTheirTimeToLive() {
+    CatalogCache<Long> cache = cache(100, item -> 1);
+    cache.find(1);
+    clock.set(TIME_TO_LIVE_NANOS - 1);
+    cache.find(1);
+    assertEquals(1, cache.stats().getLoads());
+
+    clock.set(TIME_TO_LIVE_NANOS);
+    assertEquals(Long.valueOf(1), cache.find(1));
+    assertEquals(2, cache.stats().getLoads());
+    assertEquals(1, cache.stats().getExpirations());
+  }
+
+  @Test
+  public void findAllLoadsEveryMissInOneCall() {
+    CatalogCache<Long> cache = cache(1_000, item -> 1);
+    cache.find(2);
+
+    Map<Long, Long> found = cache.findAll(new long[] {1, 2, 3, 20_000});
+
+    assertEquals(3, found.size());
+    assertFalse(found.containsKey(20_000L));
+    assertEquals(2, cache.stats().getLoads());
+    assertEquals(1, cache.stats().getHits());
+    assertNull(cache.find(20_000));
+  }
+
+  @Test
+  public void saveWritesThroughAndCaches() {
+    CatalogCache<Long> cache = cache(100, item -> 1);
+    cache.save(50_000L);
+
+    assertEquals(Long.valueOf(50_000), store.find(50_000));
+    assertEquals(Long.valueOf(50_000), cache.find(50_000));
+    assertEquals(0, cache.stats().getLoads());
+  }
+
+  private CatalogCache<Long> cache(long maximumWeight, ToIntFunction<Long> weigher) {
+    return new CatalogCache<>(
+        store,
+        Long::longValue,
+        maximumWeight,
+        (int) maximumWeight,
+        weigher,
+        TIME_TO_LIVE_NANOS,
+        clock::get);
+  }
+
+  /** Items are their own ids. */
+  private static class MapStore implements CatalogStore<Long> {
+
+    private final Map<Long, Long> items = new HashMap<>();
+
+    @Override
+    public synchronized void save(Long item) {
+      items.put(item, item);
+    }
+
+    @Override
+    public synchronized Long find(long id) {
+      return items.get(id);
+    }
+
+    @Override
+    public synchronized Map<Long, Long> findAll(long[] ids) {
+      Map<Long, Long> found = new HashMap<>();
+      for (long id : ids) {
+        if (items.containsKey(id)) {
+          found.put(id, items.get(id));
+        }
+      }
+      return found;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.datastax.driver.core.LocalDate;
+import model.LongIdList;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class FileFormatTest {
+
+  private static final String[] TEXTS = {
+    "plain", "", "with,comma", "with \"quotes\"", "two\nlines", "crlf\r\nline", "ünïcödé", "\""
+  };
+
+  private final List<Path> files = new ArrayList<>();
+  private int chunksRead;
+
+  @After
+  public void deleteFiles() throws IOException {
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void everyFormatRoundTripsAcrossChunks() throws IOException {
+    SplittableRandom random = new SplittableRandom(1);
+    List<Object[]> users = new ArrayList<>();
+    List<Object[]> messages = new ArrayList<>();
+    for (long id = 0; id < 5_000; id++) {
+      users.add(
+          new Object[] {
+            id,
+            random.nextBoolean() ? null : text(random),
+            text(random),
+            LocalDate.fromDaysSinceEpoch(random.nextInt(-5_000, 20_000)),
+            id % 3 == 0 ? LongIdList.empty() : LongIdList.of(1, -2, id),
+            random.nextInt(),
+            id % 5 == 0 ? null : LongIdList.of(id)
+          });
+      messages.add(
+          new Object[] {
+            id % 100, (int) (id % 12), new Date(random.nextLong(1L << 42)), id, random.nextLong(),
+            text(random)
+          });
+    }
+
+    for (FileFormat format : FileFormat.values()) {
+      assertRows(users, read(format, TableFormat.USERS, write(format, TableFormat.USERS, users)));
+      assertTrue(format + " split into " + chunksRead + " chunks", chunksRead > 10);
+      assertRows(
+          messages,
+          read(
+              format,
+              TableFormat.MESSAGES_BY_USER,
+              write(format, TableFormat.MESSAGES_BY_USER, messages)));
+    }
+  }
+
+  @Test
+  public void csvReadsQuotedAndEmptyFieldsWithCrlfLineEnds() throws IOException {
+    Path file =
+        csv(
+            "userid,friendid,since\r\n"
+                + "1,2,2020-01-31\r\n"
+                + "3,,\r\n"
+                + "\"4\",\"5\",\"1969-12-31\"\r\n");
+
+    List<Object[]> rows = read(FileFormat.CSV, TableFormat.FRIENDS_BY_USER, file);
+
+    assertRows(
+        Arrays.asList(
+            new Object[] {1L, 2L, LocalDate.fromYearMonthDay(2020, 1, 31)},
+            new Object[] {3L, null, null},
+            new Object[] {4L, 5L, LocalDate.fromYearMonthDay(1969, 12, 31)}),
+        rows);
+  }
+
+  @Test
+  public void csvKeepsQuotedEmptyTextApartFromNull() throws IOException {
+    Path file =
+        csv(
+            "id,senderId,recipientId,text,date\n"
+                + "1,2,3,\"\",2020-01-01\n"
+                + "2,2,3,,2020-01-01\n"
+                + "3,2,3,\"a,\"\"b\"\"\r\nc\",2020-01-01");
+
+    List<Object[]> rows = read(FileFormat.CSV, TableFormat.MESSAGES, file);
+
+    LocalDate date = LocalDate.fromYearMonthDay(2020, 1, 1);
+    assertRows(
+        Arrays.asList(
+            new Object[] {1L, 2L, 3L, "", date},
+            new Object[] {2L, 2L, 3L, null, date},
+            new Object[] {3L, 2L, 3L, "a,\"b\"\r\nc", date}),
+        rows);
+  }
+
+  @Test
+  public void csvEncodesEmptyListsAsQuotedEmptyFields() {
+    Block block = new Block(64);
+    FileFormat.CSV.encode(
+        new Object[] {1L, LongIdList.empty(), null}, TableFormat.FRIENDSHIPS, block);
+    assertEquals("1,\"\",\n", new String(block.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void rejectsAFileOfAnotherTable() throws IOException {
+    for (FileFormat format : FileFormat.values()) {
+      Path file = write(format, TableFormat.FRIENDS_BY_USER, new ArrayList<>());
+      try {
+        read(format, TableFormat.FRIENDSHIPS, file);
+        fail(format + " accepted a file of another table");
+      } catch (IOException expected) {
+        // the header names other columns
+      }
+    }
+  }
+
+  @Test
+  public void findsFormatsByNameOrExtension() {
+    assertEquals(FileFormat.CSV, FileFormat.forName("csv"));
+    assertEquals(FileFormat.BINARY, FileFormat.forName("binary"));
+    assertEquals(FileFormat.BINARY, FileFormat.forName("bin"));
+  }
+
+  private static String text(SplittableRandom random) {
+    return TEXTS[random.nextInt(TEXTS.length)];
+  }
+
+  /** Writes {@code rows} in blocks of a few kilobytes, so the file splits into many chunks. */
+  private Path write(FileFormat format, TableFormat table, List<Object[]> rows)
+      throws IOException {
+    Path file = newFile(format);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      format.writeHeader(channel, table);
+      Block block = new Block(8_192);
+      for (Object[] row : rows) {
+        format.encode(row, table, block);
+        if (block.size() >= 4_096) {
+          format.writeBlock(channel, block);
+          block.clear();
+        }
+      }
+      if (block.rows() > 0) {
+        format.writeBlock(channel, block);
+      }
+    }
+    return file;
+  }
+
+  private List<Object[]> read(FileFormat format, TableFormat table, Path file)
+      throws IOException {
+    List<Object[]> rows = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long dataStart = format.readHeader(channel, table);
+      List<long[]> chunks = format.split(channel, dataStart, 10_000);
+      chunksRead = chunks.size();
+      for (long[] chunk : chunks) {
+        format.decode(
+            channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]),
+            table,
+            rows::add);
+      }
+    }
+    return rows;
+  }
+
+  private Path csv(String content) throws IOException {
+    Path file = newFile(FileFormat.CSV);
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private Path newFile(FileFormat format) throws IOException {
+    Path file = Files.createTempFile("table", "." + format.getExtension());
+    files.add(file);
+    return file;
+  }
+
+  private static void assertRows(List<Object[]> expected, List<Object[]> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertArrayEquals(expected.get(i), actual.get(i));
+    }
+  }
+}